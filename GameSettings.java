@@ -0,0 +1,373 @@
+package pepse;
+
+import pepse.util.NoiseType;
+
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tunable parameters of a game session.
+ * Every value has a default and can be overridden on the command line
+ * with a {@code -Dpepse.<name>=<value>} system property. A value that cannot be parsed is
+ * logged and replaced by the default.
+ */
+public class GameSettings {
+
+    private static final Logger LOGGER = Logger.getLogger(GameSettings.class.getName());
+    private static final String PROPERTY_PREFIX = "pepse.";
+    private static final float DEFAULT_GENERATION_BUDGET_MS = 2f;
+    private static final float DEFAULT_PREFETCH_SECONDS = 1.5f;
+    private static final int DEFAULT_UNLOAD_MARGIN = 480;
+    private static final int DEFAULT_CULL_MARGIN = 150;
+    private static final int DEFAULT_COLLIDER_RADIUS = 300;
+    private static final float DEFAULT_LOD_DISTANCE = 2000f;
+    private static final int DEFAULT_TERRAIN_DEPTH = 20;
+    private static final NoiseType DEFAULT_NOISE_TYPE = NoiseType.PERLIN;
+    private static final boolean DEFAULT_PROGRESSIVE_STARTUP = true;
+    private static final float DEFAULT_SIMULATION_RATE = 60f;
+    private static final float DEFAULT_TIME_SCALE = 1f;
+    private static final int DEFAULT_BOTS = 0;
+    private static final int DEFAULT_TARGET_FRAMERATE = 60;
+    private static final boolean DEFAULT_ADAPT_QUALITY = true;
+    private static final float DEFAULT_VIEW_DISTANCE = 2400f;
+    private static final float DEFAULT_GROUND_LEVEL = 480f;
+    private static final String DEFAULT_SAVE_DIR = System.getProperty("user.home") + "/.pepse";
+    private static final String DEFAULT_WORLD_CACHE_DIR =
+            System.getProperty("java.io.tmpdir") + "/pepse";
+
+    private final float generationBudgetMs;
+    private final float prefetchSeconds;
+    private final int unloadMargin;
+    private final int cullMargin;
+    private final int colliderRadius;
+    private final float lodDistance;
+    private final int terrainDepth;
+    private final NoiseType noiseType;
+    private final String worldCacheDir;
+    private final boolean progressiveStartup;
+    private final String saveDir;
+    private final float simulationRate;
+    private final float timeScale;
+    private final String recordInput;
+    private final String replayInput;
+    private final String frameProfile;
+    private final int bots;
+    private final int targetFramerate;
+    private final boolean adaptQuality;
+    private final float viewDistance;
+    private final float groundLevel;
+
+    /**
+     * Constructs a GameSettings instance from the system properties, falling back to the defaults.
+     */
+    private GameSettings() {
+        generationBudgetMs = floatProperty("generationBudgetMs", DEFAULT_GENERATION_BUDGET_MS);
+        prefetchSeconds = floatProperty("prefetchSeconds", DEFAULT_PREFETCH_SECONDS);
+        unloadMargin = intProperty("unloadMargin", DEFAULT_UNLOAD_MARGIN);
+        cullMargin = intProperty("cullMargin", DEFAULT_CULL_MARGIN);
+        colliderRadius = intProperty("colliderRadius", DEFAULT_COLLIDER_RADIUS);
+        lodDistance = floatProperty("lodDistance", DEFAULT_LOD_DISTANCE);
+        terrainDepth = intProperty("terrainDepth", DEFAULT_TERRAIN_DEPTH);
+        noiseType = enumProperty("noise", DEFAULT_NOISE_TYPE);
+        worldCacheDir = stringProperty("worldCacheDir", DEFAULT_WORLD_CACHE_DIR);
+        progressiveStartup = Boolean.parseBoolean(
+                stringProperty("progressiveStartup", Boolean.toString(DEFAULT_PROGRESSIVE_STARTUP)));
+        saveDir = stringProperty("saveDir", DEFAULT_SAVE_DIR);
+        simulationRate = floatProperty("simulationRate", DEFAULT_SIMULATION_RATE);
+        timeScale = floatProperty("timeScale", DEFAULT_TIME_SCALE);
+        recordInput = stringProperty("recordInput", "");
+        replayInput = stringProperty("replayInput", "");
+        frameProfile = stringProperty("frameProfile", "");
+        bots = intProperty("bots", DEFAULT_BOTS);
+        targetFramerate = intProperty("targetFramerate", DEFAULT_TARGET_FRAMERATE);
+        adaptQuality = Boolean.parseBoolean(
+                stringProperty("adaptQuality", Boolean.toString(DEFAULT_ADAPT_QUALITY)));
+        viewDistance = floatProperty("viewDistance", DEFAULT_VIEW_DISTANCE);
+        groundLevel = floatProperty("groundLevel", DEFAULT_GROUND_LEVEL);
+    }
+
+    /**
+     * Reads the settings from the system properties, falling back to the defaults.
+     *
+     * @return The settings of this session.
+     */
+    public static GameSettings fromSystemProperties() {
+        return new GameSettings();
+    }
+
+    /**
+     * Gets the time that world generation may take in a single frame.
+     *
+     * @return The per-frame generation budget, in milliseconds.
+     */
+    public float getGenerationBudgetMs() {
+        return generationBudgetMs;
+    }
+
+    /**
+     * Gets how far ahead of the avatar the world is prefetched, in seconds of movement.
+     *
+     * @return The prefetch lookahead time, in seconds.
+     */
+    public float getPrefetchSeconds() {
+        return prefetchSeconds;
+    }
+
+    /**
+     * Gets how far outside the loaded range the world is kept before it is unloaded.
+     *
+     * @return The width of the hysteresis band between loading and unloading, in pixels.
+     */
+    public int getUnloadMargin() {
+        return unloadMargin;
+    }
+
+    /**
+     * Gets how far outside the camera's view static objects are still updated and rendered.
+     *
+     * @return The culling margin, in pixels.
+     */
+    public int getCullMargin() {
+        return cullMargin;
+    }
+
+    /**
+     * Gets how far from the avatar terrain collision blocks are materialized.
+     *
+     * @return The collider radius, in pixels.
+     */
+    public int getColliderRadius() {
+        return colliderRadius;
+    }
+
+    /**
+     * Gets how far from the avatar terrain chunks are kept at full detail.
+     *
+     * @return The level-of-detail distance, in pixels.
+     */
+    public float getLodDistance() {
+        return lodDistance;
+    }
+
+    /**
+     * Gets the number of blocks below the surface of every terrain column.
+     *
+     * @return The terrain depth, in blocks.
+     */
+    public int getTerrainDepth() {
+        return terrainDepth;
+    }
+
+    /**
+     * Gets the noise implementation the terrain is generated with.
+     *
+     * @return The terrain noise type.
+     */
+    public NoiseType getNoiseType() {
+        return noiseType;
+    }
+
+    /**
+     * Gets the directory that per-seed world cache files are kept in.
+     *
+     * @return The world cache directory, or an empty string if the cache is disabled.
+     */
+    public String getWorldCacheDir() {
+        return worldCacheDir;
+    }
+
+    /**
+     * Checks whether only the avatar's surroundings are generated before the first frame,
+     * with the rest of the initial world streamed in afterwards.
+     *
+     * @return True for a progressive startup, false to generate the whole initial world first.
+     */
+    public boolean isProgressiveStartup() {
+        return progressiveStartup;
+    }
+
+    /**
+     * Gets the directory that the world's saved changes, such as eaten fruit, are kept in.
+     *
+     * @return The save directory, or an empty string if nothing is saved.
+     */
+    public String getSaveDir() {
+        return saveDir;
+    }
+
+    /**
+     * Gets the number of fixed simulation steps per simulated second.
+     *
+     * @return The simulation rate, in steps per second, or 0 for one variable step per frame.
+     */
+    public float getSimulationRate() {
+        return simulationRate;
+    }
+
+    /**
+     * Gets how many simulated seconds pass per real second.
+     *
+     * @return The time scale.
+     */
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Gets the file that the player's input is recorded to.
+     *
+     * @return The recording file, or an empty string if input is not recorded.
+     */
+    public String getRecordInput() {
+        return recordInput;
+    }
+
+    /**
+     * Gets the file of a recorded session to replay instead of the player's input.
+     *
+     * @return The recording file, or an empty string to play live.
+     */
+    public String getReplayInput() {
+        return replayInput;
+    }
+
+    /**
+     * Gets the file that the update time of every frame is written to when a replay ends.
+     *
+     * @return The profile file, or an empty string if frames are not profiled.
+     */
+    public String getFrameProfile() {
+        return frameProfile;
+    }
+
+    /**
+     * Gets the number of bot avatars that roam the world alongside the player.
+     *
+     * @return The number of bots.
+     */
+    public int getBots() {
+        return bots;
+    }
+
+    /**
+     * Gets the framerate the window is capped to, which the quality of the world is adapted to.
+     *
+     * @return The target framerate, in frames per second, or 0 to keep the engine's default.
+     */
+    public int getTargetFramerate() {
+        return targetFramerate;
+    }
+
+    /**
+     * Checks whether the quality of the world is lowered when frames take longer than the
+     * target framerate allows, and raised again once they keep to it.
+     *
+     * @return True if the quality is adapted, false to keep full quality.
+     */
+    public boolean isAdaptQuality() {
+        return adaptQuality;
+    }
+
+    /**
+     * Gets how far the loaded range reaches to either side of an avatar, whatever the size of
+     * the window.
+     *
+     * @return The view distance, in pixels.
+     */
+    public float getViewDistance() {
+        return viewDistance;
+    }
+
+    /**
+     * Gets the mean height of the ground, which also sets how high the hills rise around it,
+     * whatever the size of the window.
+     *
+     * @return The ground level, in pixels.
+     */
+    public float getGroundLevel() {
+        return groundLevel;
+    }
+
+    /**
+     * Reads a string system property.
+     *
+     * @param name The property name, without the common prefix.
+     * @param defaultValue The value to use when the property is not set.
+     * @return The property value.
+     */
+    private static String stringProperty(String name, String defaultValue) {
+        return System.getProperty(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    /**
+     * Reads a float system property.
+     *
+     * @param name The property name, without the common prefix.
+     * @param defaultValue The value to use when the property is not set.
+     * @return The property value.
+     */
+    private static float floatProperty(String name, float defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value != null) {
+            try {
+                return Float.parseFloat(value);
+            } catch (NumberFormatException e) {
+                logInvalid(name, value, defaultValue, e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads an int system property.
+     *
+     * @param name The property name, without the common prefix.
+     * @param defaultValue The value to use when the property is not set.
+     * @return The property value.
+     */
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                logInvalid(name, value, defaultValue, e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads an enum system property, whose value is the name of a constant in any case.
+     *
+     * @param name The property name, without the common prefix.
+     * @param defaultValue The value to use when the property is not set.
+     * @param <E> The type of the enum.
+     * @return The property value.
+     */
+    private static <E extends Enum<E>> E enumProperty(String name, E defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value != null) {
+            try {
+                return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                logInvalid(name, value, defaultValue, e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Logs a system property value that cannot be parsed, and the default used instead.
+     *
+     * @param name The property name, without the common prefix.
+     * @param value The value that cannot be parsed.
+     * @param defaultValue The value used instead.
+     * @param e The exception the value was rejected with.
+     */
+    private static void logInvalid(String name, String value, Object defaultValue, Exception e) {
+        LOGGER.log(Level.WARNING, String.format("Invalid value \"%s\" for %s%s, using %s",
+                value, PROPERTY_PREFIX, name, defaultValue), e);
+    }
+}
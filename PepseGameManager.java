@@ -9,21 +9,45 @@ import danogl.gui.SoundReader;
 import danogl.gui.UserInputListener;
 import danogl.gui.WindowController;
 import danogl.gui.rendering.Camera;
-import danogl.gui.rendering.OvalRenderable;
 import danogl.gui.rendering.TextRenderable;
 import danogl.util.Vector2;
+import pepse.quality.QualityController;
+import pepse.replay.FrameProfiler;
+import pepse.replay.InputRecorder;
+import pepse.replay.InputRecording;
+import pepse.replay.InputReplayer;
+import pepse.replay.ScriptedInput;
+import pepse.util.FixedTimestep;
 import pepse.world.*;
+import pepse.world.cache.WorldCache;
+import pepse.world.culling.ViewportCuller;
+import pepse.world.persistence.EatenFruitStore;
 import pepse.world.daynight.Night;
 import pepse.world.daynight.Sun;
 import pepse.world.daynight.SunHalo;
+import pepse.world.streaming.GenerationQueue;
+import pepse.world.streaming.Prefetcher;
+import pepse.world.streaming.Viewer;
+import pepse.world.streaming.WorldStreamer;
+import pepse.world.stats.WorldStats;
 import pepse.world.trees.*;
 
-import java.awt.*;
-import java.util.*;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Manages the Pepse game, handling initialization, updates, and game world creation.
+ * Besides the player's avatar, the world can host bot avatars driven by scripted input; the
+ * world is loaded around every avatar, and the camera follows the player's.
  */
 public class PepseGameManager extends GameManager {
     /** Seed value for procedural generation */
@@ -34,13 +58,33 @@ public class PepseGameManager extends GameManager {
     private static final int PARTS_TO_DIVIDE = 2;
     private static final float WINDOW_CENTER_RATIO = 0.5f;
     private static final int CLOUD_PARTS_TO_DIVIDE = 10;
-    private static final int TREE_ARRAY_SIZE = 2;
+    private static final int PREFETCH_STEP = 150;
+    private static final int CULLING_BUCKET_WIDTH = 240;
     private static final Vector2 UI_TEXT_POSITION = new Vector2(10, 110);
     private static final Vector2 UI_TEXT_SIZE = new Vector2(100, 100);
+    private static final Logger LOGGER = Logger.getLogger(PepseGameManager.class.getName());
+    private static final float NANOS_IN_MILLI = 1_000_000f;
+    private static final float MILLIS_IN_SECOND = 1000f;
+    private static final int BOT_SPACING = 1200;
+    private static final int TELEPORT_KEY = KeyEvent.VK_T;
+    private static final float TELEPORT_DISTANCE = 100_000f;
+    /** The step the origin moves by: a whole number of chunks, tree slots, trees and culling buckets */
+    private static final int ORIGIN_STEP = 40_800;
+    private static final int REBASE_DISTANCE = 8 * ORIGIN_STEP;
+    /** The generation tasks run per frame in a replay, which must not depend on the machine */
+    private static final int REPLAY_TASKS_PER_FRAME = 4;
+    private static final long FINGERPRINT_MULTIPLIER = 31;
 
-    /** Stores trees for regeneration during game updates */
-    private final HashMap<Integer, Object[]> rememberTrees = new HashMap<>();
+    private final GameSettings settings = GameSettings.fromSystemProperties();
+    private final FixedTimestep timestep =
+            new FixedTimestep(settings.getSimulationRate(), settings.getTimeScale());
     private Avatar avatar;
+    /** The player's avatar first, then the bots */
+    private final List<Avatar> avatars = new ArrayList<>();
+    /** The loaded range of every avatar, in the same order */
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final List<ScriptedInput> botInputs = new ArrayList<>();
+    private final ForkJoinPool generationPool = ForkJoinPool.commonPool();
     private Cloud cloud;
     private Rain rain;
     private WindowController windowController;
@@ -48,9 +92,21 @@ public class PepseGameManager extends GameManager {
     private ImageReader imageReader;
     private Terrain currentTerrain;
     private Flora flora;
-    private Vector2 currentWorldCordineates;
-    private int minRangeOfTree = 0;
-    private int maxRangeOfTree = 0;
+    private WorldStreamer worldStreamer;
+    private ViewportCuller viewportCuller;
+    private WorldCache worldCache;
+    private EatenFruitStore eatenFruitStore;
+    private InputRecorder inputRecorder;
+    private InputReplayer inputReplayer;
+    private FrameProfiler frameProfiler;
+    private WorldStats worldStats;
+    private QualityController qualityController;
+    private long lastUpdateStartNanos;
+    private long startupNanos;
+    private boolean firstFrameLogged;
+    private boolean startupStreaming;
+    /** The absolute x-coordinate of x = 0 */
+    private long originX;
 
     /**
      * Main entry point for the Pepse game.
@@ -64,27 +120,63 @@ public class PepseGameManager extends GameManager {
      * Updates the game state.
      * This method is called every frame to update the game
      * logic based on the avatar's position and world state.
+     * The game objects are simulated in fixed steps, so a slow frame does not change how far
+     * the avatar moves or jumps; the world is then streamed once per frame.
      * @param deltaTime Time elapsed since the last frame, in seconds.
      */
     @Override
     public void update(float deltaTime) {
-        super.update(deltaTime);
-        float xPosition = avatar.getTopLeftCorner().x();
-        float windowWidth = windowController.getWindowDimensions().x();
-        float distanceToGenerate = windowWidth / PARTS_TO_DIVIDE;
-        float distanceFromBeginScreen = xPosition - currentWorldCordineates.x();
-        float distanceFromEndScreen = currentWorldCordineates.y() - xPosition;
-
-        if (distanceFromBeginScreen < distanceToGenerate) {
-            float newMinX = currentWorldCordineates.x() - distanceToGenerate;
-            float newMaxX = currentWorldCordineates.y() - distanceToGenerate;
-            Vector2 newRange = new Vector2(newMinX, newMinX + distanceToGenerate);
-            genarateRightWorld(newMinX, newMaxX, newRange);
-        } else if (distanceFromEndScreen < distanceToGenerate) {
-            float newMinX = currentWorldCordineates.x() + distanceToGenerate;
-            float newMax = currentWorldCordineates.y() + distanceToGenerate;
-            Vector2 newRange = new Vector2(newMax - distanceToGenerate, newMax);
-            genarateLeftWorld(newMinX, newMax, newRange);
+        long updateStartNanos = System.nanoTime();
+        adaptQuality(updateStartNanos);
+        if (inputReplayer != null) {
+            if (!inputReplayer.hasNextFrame()) {
+                finishReplay();
+                return;
+            }
+            deltaTime = inputReplayer.nextFrame();
+        }
+        if (inputRecorder != null) {
+            inputRecorder.captureFrame(deltaTime);
+        }
+        for (ScriptedInput botInput : botInputs) {
+            botInput.advance(deltaTime);
+        }
+        long simulationStartNanos = System.nanoTime();
+        int steps = timestep.advance(deltaTime);
+        for (int step = 0; step < steps; step++) {
+            super.update(timestep.getStep());
+        }
+        long streamingStartNanos = System.nanoTime();
+        if (eatenFruitStore != null) {
+            eatenFruitStore.update(steps * timestep.getStep());
+        }
+        if (inputListener.wasKeyPressedThisFrame(TELEPORT_KEY)) {
+            teleport(avatar.getTopLeftCorner().x() + TELEPORT_DISTANCE);
+        }
+        applyTuning();
+        if (Math.abs(avatar.getTopLeftCorner().x()) >= REBASE_DISTANCE) {
+            rebase(Math.floorDiv((int) avatar.getTopLeftCorner().x(), ORIGIN_STEP) * ORIGIN_STEP);
+        }
+        float[] xPositions = new float[avatars.size()];
+        for (int i = 0; i < avatars.size(); i++) {
+            Avatar current = avatars.get(i);
+            xPositions[i] = current.getTopLeftCorner().x();
+            if (viewers.get(i).update(xPositions[i], current.getVelocity().x(), deltaTime)) {
+                updateResidentRange(i);
+            }
+            if (current != avatar) {
+                updateBotView(i);
+            }
+        }
+        worldStreamer.update(xPositions);
+        logStartupProgress();
+        long cullingStartNanos = System.nanoTime();
+        updateView();
+        long updateEndNanos = System.nanoTime();
+        worldStats.recordFrame(streamingStartNanos - simulationStartNanos, cullingStartNanos - streamingStartNanos,
+                updateEndNanos - cullingStartNanos, updateEndNanos - updateStartNanos);
+        if (frameProfiler != null) {
+            frameProfiler.recordFrame(updateStartNanos, updateEndNanos);
         }
     }
 
@@ -99,19 +191,91 @@ public class PepseGameManager extends GameManager {
     @Override
     public void initializeGame(ImageReader imageReader, SoundReader soundReader,
                                UserInputListener inputListener, WindowController windowController) {
+        startupNanos = System.nanoTime();
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
         this.windowController = windowController;
-        this.inputListener = inputListener;
+        this.inputListener = wrapInput(inputListener);
         this.imageReader = imageReader;
+        if (settings.getTargetFramerate() > 0) {
+            windowController.setTargetFramerate(settings.getTargetFramerate());
+        }
+        if (!settings.getFrameProfile().isEmpty()) {
+            frameProfiler = new FrameProfiler();
+        }
 
-        minRangeOfTree = (int) Math.ceil(-windowController.getWindowDimensions().x()
-                / PARTS_TO_DIVIDE / (float) PADDING_BETWEEN_TREES) * PADDING_BETWEEN_TREES;
-        maxRangeOfTree = (int) Math.ceil(windowController.getWindowDimensions().x()
-                * PARTS_TO_DIVIDE / (float) PADDING_BETWEEN_TREES) * PADDING_BETWEEN_TREES;
-        currentWorldCordineates = new Vector2(minRangeOfTree, maxRangeOfTree);
+        // The loaded range only depends on the settings, so every display loads as much world.
+        float avatarX = windowController.getWindowDimensions().x() / PARTS_TO_DIVIDE;
+        if (settings.getViewDistance() < windowController.getWindowDimensions().x()) {
+            LOGGER.warning(String.format("The view distance of %.0f px is shorter than the window is wide; "
+                    + "the edges of the view may be empty", settings.getViewDistance()));
+        }
+        for (int i = 0; i <= settings.getBots(); i++) {
+            viewers.add(new Viewer(avatarX + i * BOT_SPACING, settings.getViewDistance(),
+                    new Prefetcher(settings.getPrefetchSeconds(), PREFETCH_STEP)));
+        }
 
         createWorld();
         addAvatarToWorld();
+        addBotsToWorld();
+        registerWorldStats();
+        // A replay must see the same world on every build, so its quality is never adapted.
+        if (settings.isAdaptQuality() && settings.getTargetFramerate() > 0 && inputReplayer == null) {
+            qualityController = new QualityController(MILLIS_IN_SECOND / settings.getTargetFramerate(),
+                    settings.getViewDistance(), windowController.getWindowDimensions().x(),
+                    settings.getLodDistance(), rain.getDropsPerShower());
+        }
+    }
+
+    /**
+     * Feeds the time since the last frame started to the quality controller, if the quality is
+     * adapted, and applies the quality it decides on. The view distance is applied along with
+     * the other tuning knobs.
+     * @param updateStartNanos The {@link System#nanoTime()} at which this frame's update started.
+     */
+    private void adaptQuality(long updateStartNanos) {
+        long lastStartNanos = lastUpdateStartNanos;
+        lastUpdateStartNanos = updateStartNanos;
+        if (qualityController == null || lastStartNanos == 0
+                || !qualityController.update((updateStartNanos - lastStartNanos) / NANOS_IN_MILLI)) {
+            return;
+        }
+        flora.setLeafAnimationDensity(qualityController.getLeafAnimationDensity());
+        rain.setDropsPerShower(qualityController.getRainDrops());
+        currentTerrain.setLodDistance(qualityController.getLodDistance());
+        worldStats.recordQualityLevel(qualityController.getLevel());
+    }
+
+    /**
+     * Registers the world's statistics and tuning knobs as an MBean, so a running instance
+     * can be inspected and tuned from a local JMX console.
+     */
+    private void registerWorldStats() {
+        worldStats = new WorldStats(worldStreamer, rain, eatenFruitStore, settings.getViewDistance(),
+                settings.getGenerationBudgetMs());
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(worldStats,
+                    new ObjectName(WorldStats.OBJECT_NAME));
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "World statistics will not be available over JMX", e);
+        }
+    }
+
+    /**
+     * Applies the knobs set from the JMX console: the view distance of every avatar, as scaled
+     * by the adaptive quality, and the per-frame generation budget.
+     */
+    private void applyTuning() {
+        float viewDistance = worldStats.getViewDistance();
+        if (qualityController != null) {
+            qualityController.setViewDistance(viewDistance);
+            viewDistance = qualityController.getViewDistance();
+        }
+        for (int i = 0; i < viewers.size(); i++) {
+            if (viewers.get(i).setViewDistance(viewDistance)) {
+                updateResidentRange(i);
+            }
+        }
+        worldStreamer.getQueue().setBudgetMillis(worldStats.getGenerationBudgetMillis());
     }
 
     /**
@@ -123,6 +287,12 @@ public class PepseGameManager extends GameManager {
                         - Avatar.AVATAR_SIZE), inputListener, imageReader, cloud);
         avatar.setJumpListener(rain);
         gameObjects().addGameObject(avatar);
+        avatars.add(avatar);
+        // The camera only starts following the avatar on the first update, so the initial view
+        // is taken around the avatar instead.
+        float halfWindowWidth = windowController.getWindowDimensions().x() * WINDOW_CENTER_RATIO;
+        viewportCuller.update(avatar.getCenter().x() - halfWindowWidth,
+                avatar.getCenter().x() + halfWindowWidth);
         setCamera(new Camera(avatar, new Vector2(
                 windowController.getWindowDimensions().mult(WINDOW_CENTER_RATIO).x()
                         - avatar.getTopLeftCorner().x(),
@@ -137,18 +307,112 @@ public class PepseGameManager extends GameManager {
         txtObj.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
     }
 
+    /**
+     * Moves the player's avatar to a distant x-coordinate at once.
+     * The world only the avatar needed is dropped in one batch, and the view around the
+     * destination is generated in one batch too, in parallel and from the world cache where it
+     * can be; the rest of the destination's range streams in over the next frames. The latency
+     * therefore depends on the window size, not on the distance, and is logged.
+     * @param x The x-coordinate to move the avatar to.
+     */
+    public void teleport(float x) {
+        long startNanos = System.nanoTime();
+        float offset = x - avatar.getTopLeftCorner().x();
+        worldStreamer.removeViewer(0);
+        viewers.get(0).moveBy(offset);
+        updateResidentRange(0);
+        Vector2 previousCenter = avatar.getCenter();
+        avatar.setTopLeftCorner(new Vector2(x, currentTerrain.groundHeightAt(x) - Avatar.AVATAR_SIZE));
+        avatar.setVelocity(Vector2.ZERO);
+        moveCamera(avatar.getCenter().subtract(previousCenter));
+        updateView();
+        float halfWindowWidth = windowController.getWindowDimensions().x() * WINDOW_CENTER_RATIO;
+        worldStreamer.flushAround(x, (int) halfWindowWidth + settings.getCullMargin(), generationPool);
+        LOGGER.info(String.format("Teleported %.0f px in %.1f ms (%d generation tasks deferred)",
+                offset, (System.nanoTime() - startNanos) / NANOS_IN_MILLI, worldStreamer.getPendingCount()));
+    }
+
+    /**
+     * Moves the camera by the same distance as the avatar it follows, which it would otherwise
+     * only do on the next update, leaving this frame's view at the avatar's old position.
+     * @param offset The distance the avatar moved by.
+     */
+    private void moveCamera(Vector2 offset) {
+        camera().setTopLeftCorner(camera().getTopLeftCorner().add(offset));
+    }
+
+    /**
+     * Brings the rows the world streamer generates and the buckets the culler keeps in the game
+     * in line with the camera's view.
+     */
+    private void updateView() {
+        Vector2 viewTopLeft = camera().getTopLeftCorner();
+        Vector2 viewBottomRight = viewTopLeft.add(camera().getDimensions());
+        worldStreamer.setVerticalView(viewTopLeft.y(), viewBottomRight.y());
+        viewportCuller.update(viewTopLeft.x(), viewBottomRight.x());
+    }
+
+    /**
+     * Moves the origin of the world under the player's avatar, and everything in the world the
+     * other way, so that coordinates stay small and positions precise however far it walks.
+     * Nothing is generated or evicted, and the camera moves along with the world.
+     * @param shift The distance to move the origin by, in pixels; a multiple of the origin step.
+     */
+    private void rebase(int shift) {
+        worldStreamer.rebase(shift);
+        Vector2 offset = new Vector2(-shift, 0);
+        for (Avatar current : avatars) {
+            current.setTopLeftCorner(current.getTopLeftCorner().add(offset));
+        }
+        moveCamera(offset);
+        for (int i = 0; i < viewers.size(); i++) {
+            viewers.get(i).moveBy(-shift);
+            updateResidentRange(i);
+        }
+        originX += shift;
+        LOGGER.info(String.format("Moved the world origin to x = %d", originX));
+    }
+
+    /**
+     * Adds the bot avatars to the game world, spread out to the right of the player, each
+     * driven by its own script.
+     */
+    private void addBotsToWorld() {
+        float playerX = windowController.getWindowDimensions().x() / PARTS_TO_DIVIDE;
+        for (int i = 1; i < viewers.size(); i++) {
+            float x = playerX + i * BOT_SPACING;
+            ScriptedInput botInput = new ScriptedInput(SEED + i);
+            Avatar bot = new Avatar(new Vector2(x, currentTerrain.groundHeightAt(x) - Avatar.AVATAR_SIZE),
+                    botInput, imageReader, cloud);
+            gameObjects().addGameObject(bot);
+            botInputs.add(botInput);
+            avatars.add(bot);
+            updateBotView(i);
+        }
+    }
+
+    /**
+     * Moves the culler's view of a bot after it, so the objects it can touch stay in the game
+     * even when it is off-screen.
+     * @param index The index of the bot among the avatars.
+     */
+    private void updateBotView(int index) {
+        float x = avatars.get(index).getCenter().x();
+        viewportCuller.update(index, x - settings.getColliderRadius(), x + settings.getColliderRadius());
+    }
+
     /**
      * Creates the initial game world, including terrain, trees, and background elements.
+     * The terrain's vertical scale comes from the settings, not from the window.
      */
     private void createWorld() {
         GameObject sky = Sky.create(windowController.getWindowDimensions());
         gameObjects().addGameObject(sky, Layer.BACKGROUND);
-        currentTerrain = new Terrain(new Vector2(currentWorldCordineates.y() - currentWorldCordineates.x(),
-                windowController.getWindowDimensions().y()), SEED);
-        for (Block block : currentTerrain.createInRange((int) currentWorldCordineates.x(),
-                (int) currentWorldCordineates.y())) {
-            gameObjects().addGameObject(block, Layer.STATIC_OBJECTS);
-        }
+        currentTerrain = new Terrain(settings.getGroundLevel(), SEED, settings.getTerrainDepth(),
+                settings.getNoiseType());
+        currentTerrain.setLodDistance(settings.getLodDistance());
+        this.flora = new Flora(x -> currentTerrain.groundHeightAt(x), SEED);
+        openWorldCache();
         cloud = new Cloud(windowController.getWindowDimensions());
         for (Block block : cloud.createInRange(0,
                 (int) windowController.getWindowDimensions().x() / CLOUD_PARTS_TO_DIVIDE)) {
@@ -166,169 +430,142 @@ public class PepseGameManager extends GameManager {
         gameObjects().addGameObject(sunHalo, Layer.BACKGROUND);
         sunHalo.addComponent(deltaTime -> sunHalo.setCenter(sun.getCenter()));
 
-        Tree.initializeRandom(SEED);
-        this.flora = new Flora(x -> currentTerrain.groundHeightAt(x), SEED);
-        HashMap<Tree, TreeData> rangeMap = flora.createInRange((int) currentWorldCordineates.x(),
-                (int) currentWorldCordineates.y());
-        addTrees(rangeMap);
-    }
-
-    /**
-     * Checks if the terrain range has expanded, updating the range if necessary.
-     * @return True if the range was updated, false otherwise.
-     */
-    private Boolean checkChangeNewBorder() {
-        if (currentWorldCordineates.x() < minRangeOfTree) {
-            minRangeOfTree = (int) currentWorldCordineates.x();
-            return true;
+        openEatenFruitStore();
+        viewportCuller = new ViewportCuller(gameObjects(), CULLING_BUCKET_WIDTH, settings.getCullMargin());
+        GenerationQueue generationQueue = new GenerationQueue(settings.getGenerationBudgetMs());
+        if (inputReplayer != null) {
+            generationQueue.setTaskBudget(REPLAY_TASKS_PER_FRAME);
         }
-        if (currentWorldCordineates.y() > maxRangeOfTree) {
-            maxRangeOfTree = (int) currentWorldCordineates.y();
-            return true;
+        worldStreamer = new WorldStreamer(viewportCuller, currentTerrain, flora, generationQueue,
+                PADDING_BETWEEN_TREES, settings.getUnloadMargin(), settings.getColliderRadius(), eatenFruitStore);
+        for (int i = 0; i < viewers.size(); i++) {
+            updateResidentRange(i);
         }
-        return false;
-    }
-
-    /**
-     * Expands the terrain in the specified range.
-     * @param newMinX The minimum x-coordinate of the new range.
-     * @param newMaxX The maximum x-coordinate of the new range.
-     */
-    private void expandTerrain(float newMinX, float newMaxX) {
-        List<Block> newBlocks = currentTerrain.createInRange((int) newMinX, (int) newMaxX);
-        for (Block block : newBlocks) {
-            gameObjects().addGameObject(block, Layer.STATIC_OBJECTS);
+        float avatarX = windowController.getWindowDimensions().x() / PARTS_TO_DIVIDE;
+        float[] avatarXs = new float[viewers.size()];
+        for (int i = 0; i < avatarXs.length; i++) {
+            avatarXs[i] = avatarX + i * BOT_SPACING;
+        }
+        if (settings.isProgressiveStartup()) {
+            // Only what the first frame shows, and the ground under the bots, is generated now;
+            // the rest streams in afterwards.
+            for (int i = 1; i < avatarXs.length; i++) {
+                worldStreamer.flushAround(avatarXs[i], settings.getColliderRadius());
+            }
+            worldStreamer.flushAround(avatarX, (int) (windowController.getWindowDimensions().x()
+                    * WINDOW_CENTER_RATIO) + settings.getCullMargin(), generationPool);
+            startupStreaming = true;
+        } else {
+            worldStreamer.flush(avatarX);
+        }
+        // The first physics step runs before the first streaming update.
+        worldStreamer.updateColliders(avatarXs);
+        if (worldCache != null) {
+            worldCache.flush();
         }
     }
 
     /**
-     * Reduces the terrain outside the specified range.
-     * @param newMinX The minimum x-coordinate of the retained range.
-     * @param newMaxX The maximum x-coordinate of the retained range.
+     * Opens the eaten fruit log of the seed, if saving is enabled, so the session resumes
+     * with the fruit that was eaten before. The log is closed when the game exits.
      */
-    private void reduceTerrain(float newMinX, float newMaxX) {
-        List<Block> removedBlocks = currentTerrain.filterBlocksInRange((int) newMinX, (int) newMaxX);
-        for (Block block : removedBlocks) {
-            gameObjects().removeGameObject(block, Layer.STATIC_OBJECTS);
+    private void openEatenFruitStore() {
+        if (settings.getSaveDir().isEmpty()) {
+            return;
+        }
+        eatenFruitStore = EatenFruitStore.open(Paths.get(settings.getSaveDir()), SEED);
+        if (eatenFruitStore != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(eatenFruitStore::close));
         }
     }
 
     /**
-     * Removes trees outside the specified range and stores them for possible restoration.
-     * @param newMinX The minimum x-coordinate of the retained range.
-     * @param newMaxX The maximum x-coordinate of the retained range.
+     * Wraps the player's input for recording or replaces it with a replay, if either is enabled.
+     * A recording is written when the game exits.
+     * @param inputListener The player's input.
+     * @return The input the avatar is driven by.
      */
-    private void reduceTrees(float newMinX, float newMaxX) {
-        HashMap<Tree, TreeData> removedTrees = flora.filterTreesOutOfRange((int) newMinX, (int) newMaxX);
-        for (Map.Entry<Tree, TreeData> entry : removedTrees.entrySet()) {
-            Tree tree = entry.getKey();
-            TreeData treeData = entry.getValue();
-            int key = (int) tree.getTopLeftCorner().x() / PADDING_BETWEEN_TREES * PADDING_BETWEEN_TREES;
-            Object[] treeArray = new Object[TREE_ARRAY_SIZE];
-            treeArray[0] = tree;
-            treeArray[1] = treeData;
-            rememberTrees.put(key, treeArray);
-            gameObjects().removeGameObject(tree, Layer.STATIC_OBJECTS);
-            for (Leaf leaf : treeData.getLeaves()) {
-                gameObjects().removeGameObject(leaf, Layer.STATIC_OBJECTS);
-            }
-            for (Fruit fruit : treeData.getFruits()) {
-                gameObjects().removeGameObject(fruit, Layer.STATIC_OBJECTS);
+    private UserInputListener wrapInput(UserInputListener inputListener) {
+        if (!settings.getReplayInput().isEmpty()) {
+            try {
+                inputReplayer = new InputReplayer(
+                        InputRecording.read(Paths.get(settings.getReplayInput())), SEED);
+                return inputReplayer;
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.log(Level.SEVERE, "Cannot replay " + settings.getReplayInput()
+                        + ", using live input", e);
             }
+        } else if (!settings.getRecordInput().isEmpty()) {
+            inputRecorder = new InputRecorder(inputListener, SEED);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    inputRecorder.getRecording().write(Paths.get(settings.getRecordInput()));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to write the input recording", e);
+                }
+            }));
+            return inputRecorder;
         }
+        return inputListener;
     }
 
     /**
-     * Adds trees to the game world.
-     * @param newTree A map of trees and their data to add.
+     * Ends a replay: writes and logs the frame profile, if one was recorded, and closes the game.
      */
-    private void addTrees(HashMap<Tree, TreeData> newTree) {
-        for (Map.Entry<Tree, TreeData> entry : newTree.entrySet()) {
-            Tree tree = entry.getKey();
-            TreeData treeData = entry.getValue();
-            gameObjects().addGameObject(tree, Layer.STATIC_OBJECTS);
-            for (Leaf leaf : treeData.getLeaves()) {
-                gameObjects().addGameObject(leaf, Layer.STATIC_OBJECTS);
-            }
-            for (Fruit fruit : treeData.getFruits()) {
-                gameObjects().addGameObject(fruit, Layer.STATIC_OBJECTS);
+    private void finishReplay() {
+        if (frameProfiler != null) {
+            LOGGER.info("Replay frame profile: " + frameProfiler.summary());
+            try {
+                frameProfiler.write(Paths.get(settings.getFrameProfile()));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write the frame profile", e);
             }
+            frameProfiler = null;
         }
+        windowController.closeWindow();
     }
 
     /**
-     * Restores trees within the specified range from stored data.
-     * @param newRange The range of x-coordinates to restore trees within.
+     * Logs the time to the first frame, and, for a progressive startup, the time until the
+     * whole initial world has been streamed in.
      */
-    private void restoreTrees(Vector2 newRange) {
-        Iterator<Map.Entry<Integer, Object[]>> iterator = rememberTrees.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Integer, Object[]> entry = iterator.next();
-            Integer key = entry.getKey();
-            Object[] values = entry.getValue();
-            if (key >= newRange.x() && key <= newRange.y()) {
-                Tree tree = (Tree) values[0];
-                TreeData treeData = (TreeData) values[1];
-                flora.createPastTree(tree, treeData);
-                gameObjects().addGameObject(tree, Layer.STATIC_OBJECTS);
-                for (Leaf leaf : treeData.getLeaves()) {
-                    gameObjects().addGameObject(leaf, Layer.STATIC_OBJECTS);
-                }
-                for (Fruit fruit : treeData.getFruits()) {
-                    fruit.setTopLeftCorner(fruit.getInitialPosition());
-                    fruit.renderer().setRenderable(new OvalRenderable(Color.RED));
-                    gameObjects().addGameObject(fruit, Layer.STATIC_OBJECTS);
-                }
-                iterator.remove();
-            }
+    private void logStartupProgress() {
+        if (!firstFrameLogged) {
+            firstFrameLogged = true;
+            LOGGER.info(String.format("Time to first frame: %.1f ms (%d generation tasks deferred)",
+                    (System.nanoTime() - startupNanos) / NANOS_IN_MILLI, worldStreamer.getPendingCount()));
+        }
+        if (startupStreaming && worldStreamer.getPendingCount() == 0) {
+            startupStreaming = false;
+            LOGGER.info(String.format("Initial world streamed in after %.1f ms",
+                    (System.nanoTime() - startupNanos) / NANOS_IN_MILLI));
         }
     }
 
     /**
-     * Generates and manages the world on the right side of the screen.
-     * @param newMinX The new minimum x-coordinate.
-     * @param newMax The new maximum x-coordinate.
-     * @param newRange The range of coordinates to generate.
+     * Opens the world cache of the seed, if it is enabled, and hands it to the terrain and the
+     * flora. The cache is closed when the game exits, appending whatever was generated last.
      */
-    private void genarateRightWorld(float newMinX, float newMax, Vector2 newRange) {
-        currentWorldCordineates = new Vector2(newMinX, newMax);
-        Boolean bordersGrow = checkChangeNewBorder();
-        expandTerrain(newMinX, newMax);
-        if (bordersGrow) {
-            float nextTreePosition = newRange.x();
-            while (nextTreePosition < newRange.y()) {
-                addTrees(flora.createInRange((int) nextTreePosition,
-                        (int) nextTreePosition + Tree.WIDTH_TREE));
-                nextTreePosition += PADDING_BETWEEN_TREES;
-            }
-        } else {
-            restoreTrees(newRange);
+    private void openWorldCache() {
+        if (settings.getWorldCacheDir().isEmpty()) {
+            return;
+        }
+        worldCache = WorldCache.open(Paths.get(settings.getWorldCacheDir()), SEED,
+                currentTerrain.getFingerprint() * FINGERPRINT_MULTIPLIER + flora.getFingerprint());
+        if (worldCache != null) {
+            currentTerrain.setWorldCache(worldCache);
+            flora.setWorldCache(worldCache);
+            Runtime.getRuntime().addShutdownHook(new Thread(worldCache::close));
         }
-        reduceTerrain(newMinX, newMax);
-        reduceTrees(newMinX, newMax);
     }
 
     /**
-     * Generates and manages the world on the left side of the screen.
-     * @param newMinX The new minimum x-coordinate.
-     * @param newMax The new maximum x-coordinate.
-     * @param newRange The range of coordinates to generate.
+     * Hands the streamer an avatar's current world range, extended by the prefetch lookahead
+     * in the avatar's direction of movement.
+     * @param index The index of the avatar.
      */
-    private void genarateLeftWorld(float newMinX, float newMax, Vector2 newRange) {
-        currentWorldCordineates = new Vector2(newMinX, newMax);
-        Boolean bordersGrow = checkChangeNewBorder();
-        expandTerrain(newMinX, newMax);
-        if (bordersGrow) {
-            float nextTreePosition = newRange.y();
-            while (nextTreePosition > newRange.x()) {
-                addTrees(flora.createInRange((int) nextTreePosition,
-                        (int) nextTreePosition + Tree.WIDTH_TREE));
-                nextTreePosition -= PADDING_BETWEEN_TREES;
-            }
-        } else {
-            restoreTrees(newRange);
-        }
-        reduceTerrain(newMinX, newMax);
-        reduceTrees(newMinX, newMax);
+    private void updateResidentRange(int index) {
+        Viewer viewer = viewers.get(index);
+        worldStreamer.setRange(index, viewer.getLoadMinX(), viewer.getLoadMaxX());
     }
 }
@@ -0,0 +1,71 @@
+package pepse.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.util.ColorSupplier;
+import pepse.world.Block;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ColorSupplier#approximateColor(Color)} at the rate the terrain calls it:
+ * once per block of a range that is 20 blocks deep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorSupplierBenchmark {
+
+    private static final int TERRAIN_DEPTH = 20;
+    private static final int MAX_CHANNEL = 256;
+
+    /** Width of the colored range, in pixels. */
+    @Param({"1920", "4800", "9600"})
+    public int rangeWidth;
+
+    /**
+     * Seed of the base color. The supplier itself is not seedable, so the seed
+     * only picks the color that is approximated.
+     */
+    @Param({"12345", "98765"})
+    public int seed;
+
+    private Color baseColor;
+
+    /**
+     * Picks the base color for the current seed.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(seed);
+        baseColor = new Color(random.nextInt(MAX_CHANNEL), random.nextInt(MAX_CHANNEL),
+                random.nextInt(MAX_CHANNEL));
+    }
+
+    /**
+     * Approximates one color per block of the range.
+     * @param blackhole Consumes the approximated colors.
+     */
+    @Benchmark
+    public void approximateColor(Blackhole blackhole) {
+        int blocks = (rangeWidth / Block.SIZE + 1) * TERRAIN_DEPTH;
+        for (int i = 0; i < blocks; i++) {
+            blackhole.consume(ColorSupplier.approximateColor(baseColor));
+        }
+    }
+}
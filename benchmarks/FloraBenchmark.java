@@ -0,0 +1,95 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.world.Terrain;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeData;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation and eviction of trees, leaves and fruits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloraBenchmark {
+
+    private static final float WINDOW_HEIGHT = 720;
+    private static final int FILTER_PARTS_TO_DIVIDE = 2;
+
+    /** Width of the generated range, in pixels. */
+    @Param({"1920", "4800", "9600"})
+    public int rangeWidth;
+
+    /** Seed handed to the terrain and the flora. */
+    @Param({"12345", "98765"})
+    public int seed;
+
+    private Terrain terrain;
+
+    /**
+     * Creates the terrain the trees stand on, which the benchmarks only read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        terrain = new Terrain(new Vector2(rangeWidth, WINDOW_HEIGHT), seed);
+    }
+
+    /**
+     * A flora for the benchmarks, which all add or remove trees, created afresh before every
+     * invocation so that each call starts from the same resident state.
+     */
+    @State(Scope.Thread)
+    public static class ResidentFlora {
+
+        private Flora flora;
+
+        /**
+         * Creates the flora, filled with the whole range.
+         * @param benchmark The benchmark, which holds the parameters of the flora.
+         */
+        @Setup(Level.Invocation)
+        public void setUp(FloraBenchmark benchmark) {
+            flora = new Flora(benchmark.terrain::groundHeightAt, benchmark.seed);
+            flora.createInRange(0, benchmark.rangeWidth);
+        }
+    }
+
+    /**
+     * Creates all the trees of the range.
+     * @param resident The flora to add the trees to.
+     * @return The trees and their data.
+     */
+    @Benchmark
+    public HashMap<Tree, TreeData> createInRange(ResidentFlora resident) {
+        return resident.flora.createInRange(0, rangeWidth);
+    }
+
+    /**
+     * Evicts the half of the resident trees that lies to the right of the range center.
+     * @param resident The flora to evict the trees from.
+     * @return The evicted trees and their data.
+     */
+    @Benchmark
+    public HashMap<Tree, TreeData> filterTreesOutOfRange(ResidentFlora resident) {
+        return resident.flora.filterTreesOutOfRange(0, rangeWidth / FILTER_PARTS_TO_DIVIDE);
+    }
+}
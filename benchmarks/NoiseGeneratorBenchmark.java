@@ -0,0 +1,89 @@
+package pepse.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.util.Noise;
+import pepse.util.NoiseGenerator;
+import pepse.util.NoiseType;
+import pepse.world.Block;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NoiseGenerator#noise(double, double)} over a range of x-coordinates,
+ * sampled once per block column as the terrain does, and the 2D
+ * {@link NoiseGenerator#noise(double, double, double)} once per cell of a band, as the
+ * terrain does for caves and ores. Every {@link NoiseType} is measured, so the seed-aware
+ * simplex implementations can be compared against the original Perlin one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseGeneratorBenchmark {
+
+    private static final int START_POINT = 480;
+    private static final int NOISE_FACTOR = 55;
+    private static final int CAVE_NOISE_SCALE = 16;
+    private static final int BAND_ROWS = 20;
+
+    /** Width of the sampled range, in pixels. */
+    @Param({"1920", "4800", "9600"})
+    public int rangeWidth;
+
+    /** Seed handed to the noise generator. */
+    @Param({"12345", "98765"})
+    public int seed;
+
+    /** Noise implementation under test. */
+    @Param({"PERLIN", "SIMPLEX", "SIMPLEX_FLOAT", "FIXED_POINT"})
+    public NoiseType noiseType;
+
+    private Noise noiseGenerator;
+    private Noise caveGenerator;
+
+    /**
+     * Creates the noise generators for the current seed and noise type.
+     */
+    @Setup
+    public void setUp() {
+        noiseGenerator = noiseType.create(seed, START_POINT);
+        caveGenerator = noiseType.create(seed, CAVE_NOISE_SCALE);
+    }
+
+    /**
+     * Samples the noise once per block column of the range.
+     * @param blackhole Consumes the sampled values.
+     */
+    @Benchmark
+    public void noise(Blackhole blackhole) {
+        for (int x = 0; x <= rangeWidth; x += Block.SIZE) {
+            blackhole.consume(noiseGenerator.noise(x, NOISE_FACTOR));
+        }
+    }
+
+    /**
+     * Samples the 2D noise once per cell of a band of rows across the range.
+     * @param blackhole Consumes the sampled values.
+     */
+    @Benchmark
+    public void noise2D(Blackhole blackhole) {
+        for (int x = 0; x <= rangeWidth; x += Block.SIZE) {
+            for (int row = 0; row < BAND_ROWS; row++) {
+                blackhole.consume(caveGenerator.noise((double) x / Block.SIZE, row, 1));
+            }
+        }
+    }
+}
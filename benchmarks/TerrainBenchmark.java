@@ -0,0 +1,150 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pepse.world.Block;
+import pepse.world.Terrain;
+import pepse.world.TerrainChunk;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the terrain generation hot paths: height sampling, chunk creation, collision block
+ * materialization, and range filtering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainBenchmark {
+
+    private static final float WINDOW_HEIGHT = 720;
+    private static final int FILTER_PARTS_TO_DIVIDE = 2;
+
+    /** Width of the generated range, in pixels. */
+    @Param({"1920", "4800", "9600"})
+    public int rangeWidth;
+
+    /** Seed handed to the terrain. */
+    @Param({"12345", "98765"})
+    public int seed;
+
+    private Terrain terrain;
+
+    /**
+     * Creates the terrain shared by the benchmarks that leave its resident state as they
+     * found it, with the chunks of the whole range resident.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        terrain = createResidentTerrain();
+    }
+
+    /**
+     * Creates a terrain with the chunks of the whole range resident, and no blocks yet.
+     * @return The terrain.
+     */
+    private Terrain createResidentTerrain() {
+        Terrain residentTerrain = new Terrain(new Vector2(rangeWidth, WINDOW_HEIGHT), seed);
+        for (int index = 0; index * TerrainChunk.WIDTH <= rangeWidth; index++) {
+            residentTerrain.createChunk(index);
+        }
+        return residentTerrain;
+    }
+
+    /**
+     * A terrain for the benchmark that materializes blocks, created afresh before every
+     * invocation so that each call starts without blocks.
+     */
+    @State(Scope.Thread)
+    public static class ResidentTerrain {
+
+        private Terrain terrain;
+
+        /**
+         * Creates the terrain, with the chunks of the whole range resident.
+         * @param benchmark The benchmark, which holds the parameters of the terrain.
+         */
+        @Setup(Level.Invocation)
+        public void setUp(TerrainBenchmark benchmark) {
+            terrain = benchmark.createResidentTerrain();
+        }
+    }
+
+    /**
+     * A terrain for the benchmark that evicts blocks, created afresh before every invocation
+     * so that each call starts with the blocks of the whole range materialized.
+     */
+    @State(Scope.Thread)
+    public static class MaterializedTerrain {
+
+        private Terrain terrain;
+
+        /**
+         * Creates the terrain, and materializes the blocks of the whole range.
+         * @param benchmark The benchmark, which holds the parameters of the terrain.
+         */
+        @Setup(Level.Invocation)
+        public void setUp(TerrainBenchmark benchmark) {
+            terrain = benchmark.createResidentTerrain();
+            terrain.materializeInRange(0, benchmark.rangeWidth);
+        }
+    }
+
+    /**
+     * Samples the ground height once per block column of the range.
+     * @param blackhole Consumes the sampled heights.
+     */
+    @Benchmark
+    public void groundHeightAt(Blackhole blackhole) {
+        for (int x = 0; x <= rangeWidth; x += Block.SIZE) {
+            blackhole.consume(terrain.groundHeightAt(x));
+        }
+    }
+
+    /**
+     * Materializes the collision blocks of the range.
+     * @param resident The terrain to add the blocks to.
+     * @return The materialized blocks.
+     */
+    @Benchmark
+    public List<Block> materializeInRange(ResidentTerrain resident) {
+        return resident.terrain.materializeInRange(0, rangeWidth);
+    }
+
+    /**
+     * Generates the tile data of all the chunks of the range.
+     * @param blackhole Consumes the generated chunks.
+     */
+    @Benchmark
+    public void createChunks(Blackhole blackhole) {
+        for (int index = 0; index * TerrainChunk.WIDTH <= rangeWidth; index++) {
+            blackhole.consume(terrain.createChunk(index));
+        }
+    }
+
+    /**
+     * Evicts the half of the materialized blocks that lies to the right of the range center.
+     * @param resident The terrain to evict the blocks from.
+     * @return The evicted blocks.
+     */
+    @Benchmark
+    public List<Block> filterBlocksInRange(MaterializedTerrain resident) {
+        return resident.terrain.filterBlocksInRange(0, rangeWidth / FILTER_PARTS_TO_DIVIDE);
+    }
+}
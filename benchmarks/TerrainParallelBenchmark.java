@@ -0,0 +1,122 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.world.Terrain;
+import pepse.world.TerrainChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Terrain#createChunks(List, ForkJoinPool)} scales with the number of
+ * threads of the pool. Comparing the scores across {@code threads} gives the speedup over one
+ * thread; the sequential path is measured by {@link TerrainBenchmark#createChunks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainParallelBenchmark {
+
+    private static final float WINDOW_HEIGHT = 720;
+
+    /** Width of the generated range, in pixels. */
+    @Param({"9600", "38400"})
+    public int rangeWidth;
+
+    /** Seed handed to the terrain. */
+    @Param({"12345"})
+    public int seed;
+
+    /** Number of threads of the fork/join pool. */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private Terrain terrain;
+    private List<Integer> indices;
+
+    /**
+     * Creates the pool and the terrain, and checks once that the parallel path builds the same
+     * chunks as the sequential one.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+        terrain = new Terrain(new Vector2(rangeWidth, WINDOW_HEIGHT), seed);
+        indices = new ArrayList<>();
+        for (int index = 0; index * TerrainChunk.WIDTH < rangeWidth; index++) {
+            indices.add(index);
+        }
+        List<TerrainChunk> sequential = new Terrain(new Vector2(rangeWidth, WINDOW_HEIGHT), seed)
+                .createChunks(indices, null);
+        List<TerrainChunk> parallel = terrain.createChunks(indices, pool);
+        for (int i = 0; i < sequential.size(); i++) {
+            if (!sameChunk(sequential.get(i), parallel.get(i))) {
+                throw new IllegalStateException("Parallel generation differs at chunk " + indices.get(i));
+            }
+        }
+    }
+
+    /**
+     * Checks whether two chunks have the same surface and the same resident cells.
+     *
+     * @param expected The chunk built sequentially.
+     * @param actual The chunk built on the pool.
+     * @return True if the chunks are the same, false otherwise.
+     */
+    private static boolean sameChunk(TerrainChunk expected, TerrainChunk actual) {
+        if (expected.getMinBand() != actual.getMinBand() || expected.getMaxBand() != actual.getMaxBand()) {
+            return false;
+        }
+        for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+            if (expected.getHeight(column) != actual.getHeight(column)) {
+                return false;
+            }
+            for (int band = expected.getMinBand(); band <= expected.getMaxBand(); band++) {
+                for (int row = band * TerrainChunk.BAND_ROWS;
+                     row < band * TerrainChunk.BAND_ROWS + expected.getBandRows(band); row++) {
+                    if (expected.getTile(column, row) != actual.getTile(column, row)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Builds all the chunks of the range on the pool. The terrain is built once per trial, so
+     * only the chunks are measured; rebuilt chunks replace the resident ones.
+     * @return The built chunks.
+     */
+    @Benchmark
+    public List<TerrainChunk> createChunks() {
+        return terrain.createChunks(indices, pool);
+    }
+}
@@ -0,0 +1,299 @@
+package pepse.benchmarks;
+
+import danogl.util.Vector2;
+import pepse.replay.ScriptedInput;
+import pepse.util.ColorSupplier;
+import pepse.world.Terrain;
+import pepse.world.TerrainChunk;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Tree;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates and streams many independent worlds at once, to find out how many of them one
+ * machine can sustain. Every world has its own seed, terrain, flora and a walker driven by a
+ * {@link ScriptedInput}, and runs on its own virtual thread, or on a platform thread on JDKs
+ * that have no virtual threads. The walkers move through simulated time as fast as they can.
+ * Reports the columns and trees generated per second, the heap retained per world, and how
+ * the throughput of one world scales to many, which exposes contention on shared state. The
+ * one shared generator left on the generation path, the one behind
+ * {@link ColorSupplier#approximateColor(Color)}, is measured on its own.
+ * Usage: {@code java pepse.benchmarks.WorldLoadGenerator [worlds] [simulatedSeconds]}.
+ */
+public class WorldLoadGenerator {
+
+    private static final int DEFAULT_WORLDS = 8;
+    private static final int DEFAULT_SIMULATED_SECONDS = 60;
+    private static final int BASE_SEED = 12345;
+    private static final float FRAME_SECONDS = 1 / 60f;
+    private static final float WALK_SPEED = 400;
+    private static final int VIEW_WIDTH = 1920;
+    private static final float WINDOW_HEIGHT = 720;
+    private static final int UNLOAD_MARGIN = 480;
+    private static final int TREE_SLOT_WIDTH = 170;
+    private static final int COLOR_CALLS_PER_THREAD = 2_000_000;
+    private static final Color BASE_COLOR = new Color(212, 123, 74);
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double BYTES_IN_MEGABYTE = 1 << 20;
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args The number of worlds, then the simulated seconds every walker walks for.
+     * @throws Exception If a world fails to generate.
+     */
+    public static void main(String[] args) throws Exception {
+        int worlds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WORLDS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIMULATED_SECONDS;
+        int frames = Math.round(seconds / FRAME_SECONDS);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // The first run compiles the generation path, so it is not measured.
+        run(1, frames);
+        Report single = run(1, frames);
+        Report loaded = run(worlds, frames);
+        System.out.println(single.describe(1));
+        System.out.println(loaded.describe(worlds));
+        double efficiency = loaded.columnsPerSecond()
+                / (Math.min(worlds, cores) * single.columnsPerSecond());
+        System.out.printf("Scaling efficiency over %d cores: %.0f%%%n", cores, efficiency * 100);
+
+        double singleRate = colorCallsPerSecond(1);
+        double sharedRate = colorCallsPerSecond(cores) / cores;
+        System.out.printf("ColorSupplier.approximateColor: %.1f M calls/s on one thread, "
+                + "%.1f M calls/s per thread on %d threads%n", singleRate / 1e6, sharedRate / 1e6, cores);
+    }
+
+    /**
+     * Generates a number of worlds at once, each walked for the same number of frames, and
+     * measures them while they are all still resident.
+     *
+     * @param worlds The number of worlds.
+     * @param frames The number of frames every walker walks for.
+     * @return The measurements.
+     * @throws Exception If a world fails to generate.
+     */
+    private static Report run(int worlds, int frames) throws Exception {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        List<Future<WorldRun>> futures = new ArrayList<>();
+        ExecutorService executor = newExecutor(worlds);
+        try {
+            for (int i = 0; i < worlds; i++) {
+                futures.add(executor.submit(new WorldRun(BASE_SEED + i, frames)));
+            }
+            List<WorldRun> runs = new ArrayList<>();
+            for (Future<WorldRun> future : futures) {
+                runs.add(future.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            // The runs are still referenced here, so their worlds count towards the used heap.
+            long heapPerWorld = (usedHeap() - heapBefore) / worlds;
+            long columns = 0;
+            long trees = 0;
+            for (WorldRun run : runs) {
+                columns += run.columns;
+                trees += run.trees;
+            }
+            return new Report(columns, trees, elapsed, heapPerWorld);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A world failed to generate", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Measures the throughput of {@link ColorSupplier#approximateColor(Color)} when called
+     * from several threads at once.
+     *
+     * @param threads The number of threads.
+     * @return The total number of calls per second.
+     * @throws Exception If a thread fails.
+     */
+    private static double colorCallsPerSecond(int threads) throws Exception {
+        ExecutorService executor = newExecutor(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int call = 0; call < COLOR_CALLS_PER_THREAD; call++) {
+                        ColorSupplier.approximateColor(BASE_COLOR);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (double) threads * COLOR_CALLS_PER_THREAD * NANOS_IN_SECOND / (System.nanoTime() - start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates an executor that runs every task on its own virtual thread. On JDKs without
+     * virtual threads, a pool with one platform thread per task is used instead.
+     *
+     * @param tasks The number of tasks that will run at once.
+     * @return The executor.
+     */
+    private static ExecutorService newExecutor(int tasks) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(tasks);
+        }
+    }
+
+    /**
+     * Gets the heap in use after a garbage collection.
+     *
+     * @return The used heap, in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A single world and its walker. The world stays referenced after the walk, so that the
+     * heap it retains can be measured.
+     */
+    private static final class WorldRun implements Callable<WorldRun> {
+
+        private final int seed;
+        private final int frames;
+        private final HashSet<Integer> residentTreeSlots = new HashSet<>();
+        private Terrain terrain;
+        private Flora flora;
+        private long columns;
+        private long trees;
+
+        /**
+         * Constructs a WorldRun instance.
+         *
+         * @param seed The seed of the world and of its walker.
+         * @param frames The number of frames the walker walks for.
+         */
+        private WorldRun(int seed, int frames) {
+            this.seed = seed;
+            this.frames = frames;
+        }
+
+        /**
+         * Walks through the world, generating the chunks and trees that come into view and
+         * evicting the ones that leave it, the way the game streams them.
+         *
+         * @return This run, with its counts filled in.
+         */
+        @Override
+        public WorldRun call() {
+            terrain = new Terrain(new Vector2(VIEW_WIDTH, WINDOW_HEIGHT), seed);
+            terrain.updateVerticalRange(0, WINDOW_HEIGHT);
+            flora = new Flora(terrain::groundHeightAt, seed);
+            ScriptedInput walker = new ScriptedInput(seed);
+            float x = 0;
+            for (int frame = 0; frame < frames; frame++) {
+                walker.advance(FRAME_SECONDS);
+                if (walker.isKeyPressed(KeyEvent.VK_RIGHT)) {
+                    x += WALK_SPEED * FRAME_SECONDS;
+                } else if (walker.isKeyPressed(KeyEvent.VK_LEFT)) {
+                    x -= WALK_SPEED * FRAME_SECONDS;
+                }
+                stream((int) x - VIEW_WIDTH / 2, (int) x + VIEW_WIDTH / 2);
+            }
+            return this;
+        }
+
+        /**
+         * Generates what is missing in the view and evicts what is further than the unload
+         * margin outside it.
+         *
+         * @param minX The minimum x-coordinate of the view.
+         * @param maxX The maximum x-coordinate of the view.
+         */
+        private void stream(int minX, int maxX) {
+            for (int index = Math.floorDiv(minX, TerrainChunk.WIDTH); index * TerrainChunk.WIDTH <= maxX;
+                 index++) {
+                if (!terrain.hasChunk(index)) {
+                    terrain.createChunk(index);
+                    columns += TerrainChunk.COLUMNS;
+                }
+            }
+            terrain.filterChunksInRange(minX - UNLOAD_MARGIN, maxX + UNLOAD_MARGIN);
+            for (int slot = Math.floorDiv(minX, TREE_SLOT_WIDTH) * TREE_SLOT_WIDTH; slot <= maxX;
+                 slot += TREE_SLOT_WIDTH) {
+                if (residentTreeSlots.add(slot)) {
+                    trees += flora.createInRange(slot, slot + Tree.WIDTH_TREE).size();
+                }
+            }
+            residentTreeSlots.removeIf(slot -> {
+                if (slot >= minX - UNLOAD_MARGIN && slot <= maxX + UNLOAD_MARGIN) {
+                    return false;
+                }
+                flora.removeInRange(slot, slot + TREE_SLOT_WIDTH - 1);
+                return true;
+            });
+        }
+    }
+
+    /**
+     * The measurements of a run of the load generator.
+     */
+    private static final class Report {
+
+        private final long columns;
+        private final long trees;
+        private final long elapsedNanos;
+        private final long heapPerWorld;
+
+        /**
+         * Constructs a Report instance.
+         *
+         * @param columns The number of terrain columns generated.
+         * @param trees The number of trees generated.
+         * @param elapsedNanos The wall-clock time the run took.
+         * @param heapPerWorld The heap retained by each world, in bytes.
+         */
+        private Report(long columns, long trees, long elapsedNanos, long heapPerWorld) {
+            this.columns = columns;
+            this.trees = trees;
+            this.elapsedNanos = elapsedNanos;
+            this.heapPerWorld = heapPerWorld;
+        }
+
+        /**
+         * Gets the number of columns generated per second of wall-clock time.
+         *
+         * @return The column throughput.
+         */
+        private double columnsPerSecond() {
+            return columns * NANOS_IN_SECOND / elapsedNanos;
+        }
+
+        /**
+         * Describes the measurements in a line.
+         *
+         * @param worlds The number of worlds of the run.
+         * @return The description.
+         */
+        private String describe(int worlds) {
+            return String.format("%d world(s): %.0f columns/s, %.0f trees/s, %.2f MB heap per world",
+                    worlds, columnsPerSecond(), trees * NANOS_IN_SECOND / elapsedNanos,
+                    heapPerWorld / BYTES_IN_MEGABYTE);
+        }
+    }
+}
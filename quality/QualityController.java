@@ -0,0 +1,199 @@
+package pepse.quality;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Adapts the quality of the world to the machine it runs on, from a rolling average of the
+ * frame time. The quality is a level on a ladder: every level scales the view distance, the
+ * fraction of animated leaves, the rain drops per shower and the terrain level-of-detail
+ * distance down further.
+ * When the average frame time rises well above the target, the quality drops a level. Since
+ * the frame rate is capped, headroom cannot be measured directly; instead, once frames have
+ * kept to the target for a while, one level is restored on trial. A restore that does not
+ * hold doubles the time until the next one, so the quality does not keep flipping between two
+ * levels. Every decision is logged.
+ */
+public class QualityController {
+
+    private static final Logger LOGGER = Logger.getLogger(QualityController.class.getName());
+    private static final float[] LEVEL_SCALES = {1f, 0.8f, 0.6f, 0.45f, 0.3f};
+    private static final int WINDOW_FRAMES = 60;
+    private static final float DEGRADE_RATIO = 1.15f;
+    private static final float RESTORE_RATIO = 1.05f;
+    private static final float INITIAL_RESTORE_DELAY_SECONDS = 5f;
+    private static final float MAX_RESTORE_DELAY_SECONDS = 80f;
+    private static final float MILLIS_IN_SECOND = 1000f;
+    private static final float PERCENT = 100f;
+
+    private final float targetFrameMillis;
+    private final float minViewDistance;
+    private final float lodDistance;
+    private final int rainDrops;
+    private final float[] frameMillis = new float[WINDOW_FRAMES];
+    private float viewDistance;
+    private int frames;
+    private float windowMillis;
+    private int level;
+    private float secondsOnTarget;
+    private float secondsSinceRestore = Float.POSITIVE_INFINITY;
+    private float restoreDelaySeconds = INITIAL_RESTORE_DELAY_SECONDS;
+
+    /**
+     * Constructs a QualityController instance, at full quality.
+     *
+     * @param targetFrameMillis The frame time to keep to, in milliseconds.
+     * @param viewDistance The view distance at full quality, in pixels.
+     * @param minViewDistance The view distance the quality never reduces below, such as what the
+     *                        window shows, in pixels.
+     * @param lodDistance The terrain level-of-detail distance at full quality, in pixels.
+     * @param rainDrops The rain drops per shower at full quality.
+     */
+    public QualityController(float targetFrameMillis, float viewDistance, float minViewDistance,
+                             float lodDistance, int rainDrops) {
+        this.targetFrameMillis = targetFrameMillis;
+        this.viewDistance = viewDistance;
+        this.minViewDistance = minViewDistance;
+        this.lodDistance = lodDistance;
+        this.rainDrops = rainDrops;
+    }
+
+    /**
+     * Records the time a frame took, and moves the quality a level down or up if the rolling
+     * average calls for it. Nothing is decided until the window of frames is full; after a
+     * change, the window starts over, so every decision only sees frames of the current level.
+     *
+     * @param frameMillis The time the frame took, in milliseconds.
+     * @return True if the quality changed, false otherwise.
+     */
+    public boolean update(float frameMillis) {
+        int slot = frames % WINDOW_FRAMES;
+        windowMillis += frameMillis - this.frameMillis[slot];
+        this.frameMillis[slot] = frameMillis;
+        frames++;
+        secondsSinceRestore += frameMillis / MILLIS_IN_SECOND;
+        if (frames < WINDOW_FRAMES) {
+            return false;
+        }
+        float averageMillis = windowMillis / WINDOW_FRAMES;
+        if (averageMillis > targetFrameMillis * DEGRADE_RATIO) {
+            secondsOnTarget = 0;
+            if (level == LEVEL_SCALES.length - 1) {
+                return false;
+            }
+            if (secondsSinceRestore < restoreDelaySeconds) {
+                restoreDelaySeconds = Math.min(restoreDelaySeconds * 2, MAX_RESTORE_DELAY_SECONDS);
+            } else {
+                restoreDelaySeconds = INITIAL_RESTORE_DELAY_SECONDS;
+            }
+            changeLevel(level + 1, averageMillis);
+            return true;
+        }
+        if (averageMillis > targetFrameMillis * RESTORE_RATIO || level == 0) {
+            secondsOnTarget = 0;
+            return false;
+        }
+        secondsOnTarget += frameMillis / MILLIS_IN_SECOND;
+        if (secondsOnTarget < restoreDelaySeconds) {
+            return false;
+        }
+        secondsSinceRestore = 0;
+        changeLevel(level - 1, averageMillis);
+        return true;
+    }
+
+    /**
+     * Moves the quality to another level, and logs the decision along with what it sets.
+     *
+     * @param newLevel The level to move to.
+     * @param averageMillis The average frame time the decision was made on, in milliseconds.
+     */
+    private void changeLevel(int newLevel, float averageMillis) {
+        LOGGER.info(String.format("Average frame time %.1f ms against a %.1f ms target: quality level "
+                        + "%d -> %d (view distance %.0f px, %.0f%% of leaves animated, %d rain drops per "
+                        + "shower, level-of-detail distance %.0f px, next restore after %.0f s on target)",
+                averageMillis, targetFrameMillis, level, newLevel, viewDistanceAt(newLevel),
+                LEVEL_SCALES[newLevel] * PERCENT, rainDropsAt(newLevel), lodDistance * LEVEL_SCALES[newLevel],
+                restoreDelaySeconds));
+        level = newLevel;
+        frames = 0;
+        windowMillis = 0;
+        Arrays.fill(frameMillis, 0);
+        secondsOnTarget = 0;
+    }
+
+    /**
+     * Sets the view distance at full quality, such as when it is tuned while the game runs.
+     *
+     * @param viewDistance The view distance, in pixels.
+     */
+    public void setViewDistance(float viewDistance) {
+        this.viewDistance = viewDistance;
+    }
+
+    /**
+     * Gets the current quality level.
+     *
+     * @return The level, from 0 for full quality upwards.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the view distance at the current quality.
+     *
+     * @return The view distance, in pixels.
+     */
+    public float getViewDistance() {
+        return viewDistanceAt(level);
+    }
+
+    /**
+     * Gets the fraction of leaves that are animated at the current quality.
+     *
+     * @return The fraction, between 0 and 1.
+     */
+    public float getLeafAnimationDensity() {
+        return LEVEL_SCALES[level];
+    }
+
+    /**
+     * Gets the rain drops per shower at the current quality.
+     *
+     * @return The number of rain drops.
+     */
+    public int getRainDrops() {
+        return rainDropsAt(level);
+    }
+
+    /**
+     * Gets the terrain level-of-detail distance at the current quality.
+     *
+     * @return The level-of-detail distance, in pixels.
+     */
+    public float getLodDistance() {
+        return lodDistance * LEVEL_SCALES[level];
+    }
+
+    /**
+     * Gets the view distance at a quality level. The quality never reduces it below the
+     * minimum, unless the full-quality view distance is already shorter.
+     *
+     * @param level The quality level.
+     * @return The view distance, in pixels.
+     */
+    private float viewDistanceAt(int level) {
+        return Math.max(viewDistance * LEVEL_SCALES[level], Math.min(viewDistance, minViewDistance));
+    }
+
+    /**
+     * Gets the rain drops per shower at a quality level; a shower keeps at least one drop.
+     *
+     * @param level The quality level.
+     * @return The number of rain drops.
+     */
+    private int rainDropsAt(int level) {
+        return Math.max(1, Math.round(rainDrops * LEVEL_SCALES[level]));
+    }
+}
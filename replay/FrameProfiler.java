@@ -0,0 +1,75 @@
+package pepse.replay;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records how long every frame's update took, so that replays of the same recording can be
+ * compared across builds. The profile is written as CSV, one line per frame, and summarized
+ * as percentiles.
+ */
+public class FrameProfiler {
+
+    private static final float NANOS_IN_MILLI = 1_000_000f;
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private long[] updateNanos = new long[INITIAL_CAPACITY];
+    private int frames;
+
+    /**
+     * Records the update time of a frame.
+     *
+     * @param startNanos The {@link System#nanoTime()} at which the update started.
+     * @param endNanos The {@link System#nanoTime()} at which the update ended.
+     */
+    public void recordFrame(long startNanos, long endNanos) {
+        if (frames == updateNanos.length) {
+            updateNanos = Arrays.copyOf(updateNanos, frames * 2);
+        }
+        updateNanos[frames++] = endNanos - startNanos;
+    }
+
+    /**
+     * Writes the update time of every recorded frame as CSV.
+     *
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("frame,updateMs");
+            for (int frame = 0; frame < frames; frame++) {
+                out.printf("%d,%.3f%n", frame, updateNanos[frame] / NANOS_IN_MILLI);
+            }
+        }
+    }
+
+    /**
+     * Summarizes the recorded update times.
+     *
+     * @return The number of frames, and the mean, median, 95th and 99th percentile and
+     *         maximum update time.
+     */
+    public String summary() {
+        if (frames == 0) {
+            return "no frames recorded";
+        }
+        long[] sorted = Arrays.copyOf(updateNanos, frames);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+        StringBuilder summary = new StringBuilder(String.format("%d frames, mean %.3f ms",
+                frames, total / NANOS_IN_MILLI / frames));
+        for (double percentile : PERCENTILES) {
+            summary.append(String.format(", p%d %.3f ms", Math.round(percentile * 100),
+                    sorted[(int) Math.min(frames - 1, Math.floor(percentile * frames))] / NANOS_IN_MILLI));
+        }
+        return summary.append(String.format(", max %.3f ms", sorted[frames - 1] / NANOS_IN_MILLI)).toString();
+    }
+}
@@ -0,0 +1,102 @@
+package pepse.replay;
+
+import danogl.gui.UserInputListener;
+import danogl.util.Vector2;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Passes the player's input through unchanged, while recording the keys held down in every
+ * frame, and the keys pressed and released during it, so the session can later be replayed
+ * with an {@link InputReplayer}.
+ */
+public class InputRecorder implements UserInputListener {
+
+    /**
+     * The key codes that presses and releases are looked for below. They cover the letters,
+     * digits, arrows, modifiers, function keys up to F12 and the keypad.
+     */
+    private static final int KEY_CODE_LIMIT = 0x400;
+
+    private final UserInputListener inputListener;
+    private final InputRecording recording;
+
+    /**
+     * Constructs an InputRecorder instance.
+     *
+     * @param inputListener The player's input, which is recorded.
+     * @param seed The seed of the world being played.
+     */
+    public InputRecorder(UserInputListener inputListener, int seed) {
+        this.inputListener = inputListener;
+        this.recording = new InputRecording(seed);
+    }
+
+    /**
+     * Records the keys held down in the current frame, and the keys pressed and released
+     * during it.
+     *
+     * @param deltaTime The time the frame took, in seconds.
+     */
+    public void captureFrame(float deltaTime) {
+        Set<Integer> keys = inputListener.pressedKeys();
+        int[] pressed = new int[keys.size()];
+        int i = 0;
+        for (int key : keys) {
+            pressed[i++] = key;
+        }
+        recording.addFrame(deltaTime, pressed,
+                IntStream.range(0, KEY_CODE_LIMIT).filter(inputListener::wasKeyPressedThisFrame).toArray(),
+                IntStream.range(0, KEY_CODE_LIMIT).filter(inputListener::wasKeyReleasedThisFrame).toArray());
+    }
+
+    /**
+     * Gets the recording made so far.
+     *
+     * @return The recording.
+     */
+    public InputRecording getRecording() {
+        return recording;
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return inputListener.isKeyPressed(keyCode);
+    }
+
+    @Override
+    public Set<Integer> pressedKeys() {
+        return inputListener.pressedKeys();
+    }
+
+    @Override
+    public boolean wasKeyPressedThisFrame(int keyCode) {
+        return inputListener.wasKeyPressedThisFrame(keyCode);
+    }
+
+    @Override
+    public boolean wasKeyReleasedThisFrame(int keyCode) {
+        return inputListener.wasKeyReleasedThisFrame(keyCode);
+    }
+
+    @Override
+    public boolean isMouseButtonPressed(int button) {
+        return inputListener.isMouseButtonPressed(button);
+    }
+
+    @Override
+    public boolean wasMouseButtonPressedThisFrame(int button) {
+        return inputListener.wasMouseButtonPressedThisFrame(button);
+    }
+
+    @Override
+    public boolean wasMouseButtonReleasedThisFrame(int button) {
+        return inputListener.wasMouseButtonReleasedThisFrame(button);
+    }
+
+    @Override
+    public Vector2 getMousePos() {
+        return inputListener.getMousePos();
+    }
+}
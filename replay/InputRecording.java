@@ -0,0 +1,182 @@
+package pepse.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded play session: the seed of its world, and for every frame the time the frame
+ * took, the keys that were held down during it, and the keys that were pressed and released
+ * during it. The presses and releases keep a key that was tapped within a single frame, which
+ * the held keys miss. Replaying the frames in order, on the same seed, reproduces the session.
+ */
+public class InputRecording {
+
+    private static final int MAGIC = 0x50455049;
+    private static final int FORMAT_VERSION = 1;
+
+    private final int seed;
+    private final List<Float> deltaTimes = new ArrayList<>();
+    private final List<int[]> pressedKeys = new ArrayList<>();
+    private final List<int[]> keysPressedThisFrame = new ArrayList<>();
+    private final List<int[]> keysReleasedThisFrame = new ArrayList<>();
+
+    /**
+     * Constructs an empty InputRecording instance.
+     *
+     * @param seed The seed of the recorded world.
+     */
+    public InputRecording(int seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Reads a recording from a file.
+     *
+     * @param path The file to read.
+     * @return The recording.
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    public static InputRecording read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not an input recording: " + path);
+            }
+            InputRecording recording = new InputRecording(in.readInt());
+            int frames = in.readInt();
+            for (int frame = 0; frame < frames; frame++) {
+                recording.addFrame(in.readFloat(), readKeys(in), readKeys(in), readKeys(in));
+            }
+            return recording;
+        }
+    }
+
+    /**
+     * Writes the recording to a file.
+     *
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(seed);
+            out.writeInt(deltaTimes.size());
+            for (int frame = 0; frame < deltaTimes.size(); frame++) {
+                out.writeFloat(deltaTimes.get(frame));
+                writeKeys(out, pressedKeys.get(frame));
+                writeKeys(out, keysPressedThisFrame.get(frame));
+                writeKeys(out, keysReleasedThisFrame.get(frame));
+            }
+        }
+    }
+
+    /**
+     * Reads a list of key codes.
+     *
+     * @param in The stream to read from.
+     * @return The key codes.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static int[] readKeys(DataInputStream in) throws IOException {
+        int[] keys = new int[in.readUnsignedShort()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = in.readInt();
+        }
+        return keys;
+    }
+
+    /**
+     * Writes a list of key codes.
+     *
+     * @param out The stream to write to.
+     * @param keys The key codes.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeKeys(DataOutputStream out, int[] keys) throws IOException {
+        out.writeShort(keys.length);
+        for (int key : keys) {
+            out.writeInt(key);
+        }
+    }
+
+    /**
+     * Appends a frame to the recording.
+     *
+     * @param deltaTime The time the frame took, in seconds.
+     * @param keys The key codes held down during the frame.
+     * @param pressedThisFrame The key codes pressed during the frame, even if released again.
+     * @param releasedThisFrame The key codes released during the frame, even if pressed again.
+     */
+    public void addFrame(float deltaTime, int[] keys, int[] pressedThisFrame, int[] releasedThisFrame) {
+        deltaTimes.add(deltaTime);
+        pressedKeys.add(keys);
+        keysPressedThisFrame.add(pressedThisFrame);
+        keysReleasedThisFrame.add(releasedThisFrame);
+    }
+
+    /**
+     * Gets the seed of the recorded world.
+     *
+     * @return The seed.
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of recorded frames.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return deltaTimes.size();
+    }
+
+    /**
+     * Gets the time a frame took.
+     *
+     * @param frame The frame index.
+     * @return The frame time, in seconds.
+     */
+    public float getDeltaTime(int frame) {
+        return deltaTimes.get(frame);
+    }
+
+    /**
+     * Gets the keys held down during a frame.
+     *
+     * @param frame The frame index.
+     * @return The key codes.
+     */
+    public int[] getPressedKeys(int frame) {
+        return pressedKeys.get(frame);
+    }
+
+    /**
+     * Gets the keys pressed during a frame, including the ones released again before it ended.
+     *
+     * @param frame The frame index.
+     * @return The key codes.
+     */
+    public int[] getKeysPressedThisFrame(int frame) {
+        return keysPressedThisFrame.get(frame);
+    }
+
+    /**
+     * Gets the keys released during a frame, including the ones pressed again before it ended.
+     *
+     * @param frame The frame index.
+     * @return The key codes.
+     */
+    public int[] getKeysReleasedThisFrame(int frame) {
+        return keysReleasedThisFrame.get(frame);
+    }
+}
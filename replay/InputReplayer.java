@@ -0,0 +1,112 @@
+package pepse.replay;
+
+import danogl.gui.UserInputListener;
+import danogl.util.Vector2;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Feeds a recorded session back into the game as its input, one recorded frame per frame.
+ * The mouse is never used by the game, so it is reported as idle.
+ */
+public class InputReplayer implements UserInputListener {
+
+    private final InputRecording recording;
+    private Set<Integer> currentKeys = new HashSet<>();
+    private Set<Integer> keysPressedThisFrame = new HashSet<>();
+    private Set<Integer> keysReleasedThisFrame = new HashSet<>();
+    private int frame;
+
+    /**
+     * Constructs an InputReplayer instance.
+     *
+     * @param recording The session to replay.
+     * @param seed The seed of the world it is replayed in.
+     * @throws IllegalArgumentException If the session was recorded in a different world.
+     */
+    public InputReplayer(InputRecording recording, int seed) {
+        if (recording.getSeed() != seed) {
+            throw new IllegalArgumentException("Recording was made with seed " + recording.getSeed()
+                    + ", not " + seed);
+        }
+        this.recording = recording;
+    }
+
+    /**
+     * Checks whether there are recorded frames left.
+     *
+     * @return True if there is another frame to replay, false otherwise.
+     */
+    public boolean hasNextFrame() {
+        return frame < recording.getFrameCount();
+    }
+
+    /**
+     * Moves on to the next recorded frame, whose keys are then reported as held down, and
+     * whose recorded presses and releases are reported as happening in this frame.
+     *
+     * @return The time the frame took when it was recorded, in seconds.
+     */
+    public float nextFrame() {
+        currentKeys = toSet(recording.getPressedKeys(frame));
+        keysPressedThisFrame = toSet(recording.getKeysPressedThisFrame(frame));
+        keysReleasedThisFrame = toSet(recording.getKeysReleasedThisFrame(frame));
+        return recording.getDeltaTime(frame++);
+    }
+
+    /**
+     * Collects key codes into a set.
+     *
+     * @param keys The key codes.
+     * @return The set of key codes.
+     */
+    private static Set<Integer> toSet(int[] keys) {
+        Set<Integer> set = new HashSet<>();
+        for (int key : keys) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return currentKeys.contains(keyCode);
+    }
+
+    @Override
+    public Set<Integer> pressedKeys() {
+        return Collections.unmodifiableSet(currentKeys);
+    }
+
+    @Override
+    public boolean wasKeyPressedThisFrame(int keyCode) {
+        return keysPressedThisFrame.contains(keyCode);
+    }
+
+    @Override
+    public boolean wasKeyReleasedThisFrame(int keyCode) {
+        return keysReleasedThisFrame.contains(keyCode);
+    }
+
+    @Override
+    public boolean isMouseButtonPressed(int button) {
+        return false;
+    }
+
+    @Override
+    public boolean wasMouseButtonPressedThisFrame(int button) {
+        return false;
+    }
+
+    @Override
+    public boolean wasMouseButtonReleasedThisFrame(int button) {
+        return false;
+    }
+
+    @Override
+    public Vector2 getMousePos() {
+        return Vector2.ZERO;
+    }
+}
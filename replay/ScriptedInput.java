@@ -0,0 +1,107 @@
+package pepse.replay;
+
+import danogl.gui.UserInputListener;
+import danogl.util.Vector2;
+
+import java.awt.event.KeyEvent;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Drives a bot avatar with generated input: runs of random length in a random direction,
+ * jumping now and then, with idle pauses in between so the avatar recovers its energy.
+ * The script only depends on the seed and the frame times, so a replayed session drives
+ * the bots exactly as they were driven when it was recorded.
+ */
+public class ScriptedInput implements UserInputListener {
+
+    private static final float MIN_RUN_SECONDS = 1f;
+    private static final float MAX_RUN_SECONDS = 3f;
+    private static final float MIN_IDLE_SECONDS = 0.5f;
+    private static final float MAX_IDLE_SECONDS = 2f;
+    private static final float JUMP_CHANCE_PER_SECOND = 0.5f;
+
+    private final Random random;
+    private Set<Integer> previousKeys = new HashSet<>();
+    private Set<Integer> currentKeys = new HashSet<>();
+    private boolean running;
+    private int runKey;
+    private float phaseSecondsLeft;
+
+    /**
+     * Constructs a ScriptedInput instance, starting idle.
+     *
+     * @param seed The seed of the script.
+     */
+    public ScriptedInput(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Moves the script on by a frame, deciding which keys are held down during it.
+     *
+     * @param deltaTime The time the frame takes, in seconds.
+     */
+    public void advance(float deltaTime) {
+        phaseSecondsLeft -= deltaTime;
+        if (phaseSecondsLeft <= 0) {
+            running = !running;
+            if (running) {
+                runKey = random.nextBoolean() ? KeyEvent.VK_LEFT : KeyEvent.VK_RIGHT;
+                phaseSecondsLeft = MIN_RUN_SECONDS + random.nextFloat() * (MAX_RUN_SECONDS - MIN_RUN_SECONDS);
+            } else {
+                phaseSecondsLeft = MIN_IDLE_SECONDS + random.nextFloat() * (MAX_IDLE_SECONDS - MIN_IDLE_SECONDS);
+            }
+        }
+        previousKeys = currentKeys;
+        currentKeys = new HashSet<>();
+        if (running) {
+            currentKeys.add(runKey);
+            if (random.nextFloat() < JUMP_CHANCE_PER_SECOND * deltaTime) {
+                currentKeys.add(KeyEvent.VK_SPACE);
+            }
+        }
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return currentKeys.contains(keyCode);
+    }
+
+    @Override
+    public Set<Integer> pressedKeys() {
+        return Collections.unmodifiableSet(currentKeys);
+    }
+
+    @Override
+    public boolean wasKeyPressedThisFrame(int keyCode) {
+        return currentKeys.contains(keyCode) && !previousKeys.contains(keyCode);
+    }
+
+    @Override
+    public boolean wasKeyReleasedThisFrame(int keyCode) {
+        return !currentKeys.contains(keyCode) && previousKeys.contains(keyCode);
+    }
+
+    @Override
+    public boolean isMouseButtonPressed(int button) {
+        return false;
+    }
+
+    @Override
+    public boolean wasMouseButtonPressedThisFrame(int button) {
+        return false;
+    }
+
+    @Override
+    public boolean wasMouseButtonReleasedThisFrame(int button) {
+        return false;
+    }
+
+    @Override
+    public Vector2 getMousePos() {
+        return Vector2.ZERO;
+    }
+}
@@ -0,0 +1,214 @@
+package pepse.util;
+
+import java.util.Random;
+
+/**
+ * Fractal gradient noise evaluated entirely in 16.16 fixed-point integer math.
+ * Coordinates are converted to fixed point once, and every octave then only uses integer
+ * multiplications and shifts: no {@link Math#floor}, and no division, since the reciprocal of
+ * every octave's period is computed in the constructor. The result is therefore bit-identical
+ * on every JVM and CPU, so the world data of a seed can be cached, hashed and compared.
+ * The permutation table is shuffled by the seed.
+ */
+public class FixedPointNoiseGenerator implements Noise {
+
+    /**
+     * The number of fractional bits of the fixed-point values.
+     */
+    public static final int FRACTION_BITS = 16;
+
+    /**
+     * The fixed-point representation of 1.
+     */
+    public static final int ONE = 1 << FRACTION_BITS;
+
+    private static final int TABLE_SIZE = 256;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final int FRACTION_MASK = ONE - 1;
+    private static final long FADE_A = 6;
+    private static final long FADE_B = 15L * ONE;
+    private static final long FADE_C = 10L * ONE;
+
+    private final int[] p = new int[TABLE_SIZE * 2];
+    /** The reciprocal of each octave's period, as a fraction of 2^64 */
+    private final long[] reciprocals;
+
+    /**
+     * Constructs a FixedPointNoiseGenerator instance.
+     *
+     * @param seed The seed that shuffles the permutation table.
+     * @param startPoint The period of the largest octave; octaves halve down to a period of 1.
+     */
+    public FixedPointNoiseGenerator(long seed, int startPoint) {
+        Random random = new Random(seed);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            p[i] = i;
+        }
+        for (int i = TABLE_SIZE - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = p[i];
+            p[i] = p[j];
+            p[j] = swap;
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            p[TABLE_SIZE + i] = p[i];
+        }
+        int octaves = 0;
+        while (((long) startPoint << FRACTION_BITS >> octaves) >= ONE) {
+            octaves++;
+        }
+        reciprocals = new long[octaves];
+        for (int octave = 0; octave < octaves; octave++) {
+            long period = (long) startPoint << FRACTION_BITS >> octave;
+            reciprocals[octave] = Long.divideUnsigned(-1L, period);
+        }
+    }
+
+    @Override
+    public double noise(double x, double factor) {
+        return (double) noiseFixed(toFixed(x)) * factor / ONE;
+    }
+
+    @Override
+    public double noise(double x, double y, double factor) {
+        return (double) noiseFixed(toFixed(x), toFixed(y)) * factor / ONE;
+    }
+
+    /**
+     * Samples the one-dimensional noise at a fixed-point coordinate.
+     *
+     * @param x The coordinate to sample, in 16.16 fixed point.
+     * @return The noise at x, in 16.16 fixed point, roughly in the range [-1, 1].
+     */
+    public int noiseFixed(long x) {
+        long value = 0;
+        for (int octave = 0; octave < reciprocals.length; octave++) {
+            value += octave1D(scale(x, octave)) >> octave;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Samples the two-dimensional noise at a fixed-point coordinate.
+     *
+     * @param x The x-coordinate to sample, in 16.16 fixed point.
+     * @param y The y-coordinate to sample, in 16.16 fixed point.
+     * @return The noise at (x, y), in 16.16 fixed point, roughly in the range [-1, 1].
+     */
+    public int noiseFixed(long x, long y) {
+        long value = 0;
+        for (int octave = 0; octave < reciprocals.length; octave++) {
+            value += octave2D(scale(x, octave), scale(y, octave)) >> octave;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Converts a coordinate to fixed point. This is the only floating-point step, and it is
+     * exact for the whole and half pixel coordinates the terrain samples.
+     *
+     * @param value The coordinate.
+     * @return The coordinate in 16.16 fixed point.
+     */
+    private static long toFixed(double value) {
+        return (long) (value * ONE);
+    }
+
+    /**
+     * Divides a fixed-point coordinate by the period of an octave, by multiplying it with the
+     * octave's reciprocal.
+     *
+     * @param coordinate The coordinate, in 16.16 fixed point.
+     * @param octave The octave index.
+     * @return The coordinate in the octave's lattice units, in 16.16 fixed point.
+     */
+    private long scale(long coordinate, int octave) {
+        return Math.multiplyHigh(coordinate << FRACTION_BITS, reciprocals[octave]);
+    }
+
+    /**
+     * Samples a single octave of 1D gradient noise.
+     *
+     * @param x The coordinate in lattice units, in 16.16 fixed point.
+     * @return The noise at x, in 16.16 fixed point.
+     */
+    private long octave1D(long x) {
+        int cell = (int) (x >> FRACTION_BITS);
+        long fraction = x & FRACTION_MASK;
+        long n0 = grad(p[cell & TABLE_MASK], fraction);
+        long n1 = grad(p[(cell + 1) & TABLE_MASK], fraction - ONE);
+        return lerp(fade(fraction), n0, n1);
+    }
+
+    /**
+     * Samples a single octave of 2D gradient noise.
+     *
+     * @param x The x-coordinate in lattice units, in 16.16 fixed point.
+     * @param y The y-coordinate in lattice units, in 16.16 fixed point.
+     * @return The noise at (x, y), in 16.16 fixed point.
+     */
+    private long octave2D(long x, long y) {
+        int cellX = (int) (x >> FRACTION_BITS) & TABLE_MASK;
+        int cellY = (int) (y >> FRACTION_BITS) & TABLE_MASK;
+        long fractionX = x & FRACTION_MASK;
+        long fractionY = y & FRACTION_MASK;
+        int a = p[cellX] + cellY;
+        int b = p[cellX + 1] + cellY;
+        long u = fade(fractionX);
+        long top = lerp(u, grad(p[a], fractionX, fractionY), grad(p[b], fractionX - ONE, fractionY));
+        long bottom = lerp(u, grad(p[a + 1], fractionX, fractionY - ONE),
+                grad(p[b + 1], fractionX - ONE, fractionY - ONE));
+        return lerp(fade(fractionY), top, bottom);
+    }
+
+    /**
+     * Applies Perlin's fade curve, 6t^5 - 15t^4 + 10t^3, in fixed point.
+     *
+     * @param t The value to fade, in [0, 1], in 16.16 fixed point.
+     * @return The faded value, in 16.16 fixed point.
+     */
+    private static long fade(long t) {
+        long faded = (t * (t * FADE_A - FADE_B) >> FRACTION_BITS) + FADE_C;
+        faded = faded * t >> FRACTION_BITS;
+        faded = faded * t >> FRACTION_BITS;
+        return faded * t >> FRACTION_BITS;
+    }
+
+    /**
+     * Interpolates linearly between two fixed-point values.
+     *
+     * @param t The interpolation weight, in 16.16 fixed point.
+     * @param a The value at t = 0.
+     * @param b The value at t = 1.
+     * @return The interpolated value.
+     */
+    private static long lerp(long t, long a, long b) {
+        return a + ((b - a) * t >> FRACTION_BITS);
+    }
+
+    /**
+     * Picks a 1D gradient of +1 or -1 from a hash and applies it to an offset.
+     *
+     * @param hash The hashed lattice point.
+     * @param x The offset from the lattice point, in 16.16 fixed point.
+     * @return The gradient applied to the offset.
+     */
+    private static long grad(int hash, long x) {
+        return (hash & 1) == 0 ? x : -x;
+    }
+
+    /**
+     * Picks one of 8 2D gradients from a hash and applies it to an offset.
+     *
+     * @param hash The hashed corner.
+     * @param x The x offset from the corner, in 16.16 fixed point.
+     * @param y The y offset from the corner, in 16.16 fixed point.
+     * @return The gradient applied to the offset.
+     */
+    private static long grad(int hash, long x, long y) {
+        int h = hash & 7;
+        long u = h < 4 ? x : y;
+        long v = h < 4 ? y : x;
+        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+    }
+}
@@ -0,0 +1,58 @@
+package pepse.util;
+
+/**
+ * Turns the variable time between rendered frames into a whole number of fixed simulation
+ * steps. Frame time is accumulated, scaled by the time scale, and consumed one step at a time,
+ * so the simulation advances by the same amount however long a frame took. The leftover time
+ * carries over to the next frame. A very long frame only contributes a bounded amount of time,
+ * so a generation hitch cannot make the simulation fall ever further behind.
+ */
+public class FixedTimestep {
+
+    private static final float MAX_FRAME_SECONDS = 0.25f;
+
+    private final float stepSeconds;
+    private final float timeScale;
+    private float accumulator;
+    private float lastStep;
+
+    /**
+     * Constructs a FixedTimestep instance.
+     *
+     * @param stepsPerSecond The number of simulation steps per simulated second, or 0 to
+     *                       simulate exactly one variable step per frame.
+     * @param timeScale How many simulated seconds pass per real second.
+     */
+    public FixedTimestep(float stepsPerSecond, float timeScale) {
+        this.stepSeconds = stepsPerSecond > 0 ? 1f / stepsPerSecond : 0f;
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Accounts for the time of a rendered frame.
+     *
+     * @param deltaTime The real time elapsed since the last frame, in seconds.
+     * @return The number of simulation steps to run for this frame, each {@link #getStep()} long.
+     */
+    public int advance(float deltaTime) {
+        float scaled = Math.min(deltaTime, MAX_FRAME_SECONDS) * timeScale;
+        if (stepSeconds == 0) {
+            lastStep = scaled;
+            return 1;
+        }
+        lastStep = stepSeconds;
+        accumulator += scaled;
+        int steps = (int) (accumulator / stepSeconds);
+        accumulator -= steps * stepSeconds;
+        return steps;
+    }
+
+    /**
+     * Gets the length of the steps returned by the last call to {@link #advance}.
+     *
+     * @return The step length, in simulated seconds.
+     */
+    public float getStep() {
+        return lastStep;
+    }
+}
@@ -0,0 +1,27 @@
+package pepse.util;
+
+/**
+ * A source of smooth, seeded, fractal noise, summed over octaves from a start point down to 1.
+ * The terrain samples it for its surface, its caves and its ore veins.
+ */
+public interface Noise {
+
+    /**
+     * Samples the one-dimensional noise.
+     *
+     * @param x The coordinate to sample.
+     * @param factor The amplitude of the noise.
+     * @return The noise at x, roughly in the range [-factor, factor].
+     */
+    double noise(double x, double factor);
+
+    /**
+     * Samples the two-dimensional noise.
+     *
+     * @param x The x-coordinate to sample.
+     * @param y The y-coordinate to sample.
+     * @param factor The amplitude of the noise.
+     * @return The noise at (x, y), roughly in the range [-factor, factor].
+     */
+    double noise(double x, double y, double factor);
+}
@@ -2,7 +2,7 @@ package pepse.util;
 
 import java.util.Random;
 
-public class NoiseGenerator {
+public class NoiseGenerator implements Noise {
     private double seed;
     private long default_size;
     private int[] p;
@@ -73,6 +73,7 @@ public class NoiseGenerator {
      *       }
      *
      */
+    @Override
     public double noise(double x, double factor) {
         double value = 0.0;
         double currentPoint = startPoint;
@@ -86,6 +87,29 @@ public class NoiseGenerator {
     }
 
 
+    /**
+     * The two-dimensional counterpart of {@link #noise(double, double)}, used for the features
+     * inside the body of the terrain, such as caves and ore veins.
+     *
+     * @param x the wanted x to receive noise for.
+     * @param y the wanted y to receive noise for.
+     * @param factor describes how large the noise should be.
+     * @return returns a noise, roughly in the range [-factor, factor].
+     */
+    @Override
+    public double noise(double x, double y, double factor) {
+        double value = 0.0;
+        double currentPoint = startPoint;
+
+        while (currentPoint >= 1) {
+            value += smoothNoise((x / currentPoint), (y / currentPoint), 0) * currentPoint;
+            currentPoint /= 2.0;
+        }
+
+        return value * factor / startPoint;
+    }
+
+
     private double smoothNoise(double x, double y, double z) {
         // Offset each coordinate by the seed value
         x += this.seed;
@@ -0,0 +1,47 @@
+package pepse.util;
+
+/**
+ * The noise implementations the terrain can be generated with.
+ */
+public enum NoiseType {
+
+    /**
+     * The original {@link NoiseGenerator}: 3D Perlin noise, where the seed only offsets x.
+     */
+    PERLIN,
+
+    /**
+     * {@link SimplexNoiseGenerator} with double-precision math.
+     */
+    SIMPLEX,
+
+    /**
+     * {@link SimplexNoiseGenerator} with single-precision math.
+     */
+    SIMPLEX_FLOAT,
+
+    /**
+     * {@link FixedPointNoiseGenerator}: integer math only, bit-identical on every platform.
+     */
+    FIXED_POINT;
+
+    /**
+     * Creates a noise source of this type.
+     *
+     * @param seed The seed of the noise.
+     * @param startPoint The period of the largest octave.
+     * @return The new noise source.
+     */
+    public Noise create(int seed, int startPoint) {
+        switch (this) {
+            case SIMPLEX:
+                return new SimplexNoiseGenerator(seed, startPoint, false);
+            case SIMPLEX_FLOAT:
+                return new SimplexNoiseGenerator(seed, startPoint, true);
+            case FIXED_POINT:
+                return new FixedPointNoiseGenerator(seed, startPoint);
+            default:
+                return new NoiseGenerator(seed, startPoint);
+        }
+    }
+}
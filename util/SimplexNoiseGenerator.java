@@ -0,0 +1,277 @@
+package pepse.util;
+
+import java.util.Random;
+
+/**
+ * Fractal simplex noise with a permutation table shuffled by the seed, so that every seed
+ * gives a different landscape rather than a shifted copy of the same one.
+ * The one- and two-dimensional noise each have their own code path, so a 1D sample only
+ * blends two gradients and a 2D sample three. The math can be done in floats, which is
+ * cheaper but slightly less precise far from the origin.
+ */
+public class SimplexNoiseGenerator implements Noise {
+
+    private static final int TABLE_SIZE = 256;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final double SCALE_1D = 0.395;
+    private static final double SCALE_2D = 40.0;
+    private static final double SKEW_2D = 0.5 * (Math.sqrt(3.0) - 1.0);
+    private static final double UNSKEW_2D = (3.0 - Math.sqrt(3.0)) / 6.0;
+    private static final float SKEW_2D_FLOAT = (float) SKEW_2D;
+    private static final float UNSKEW_2D_FLOAT = (float) UNSKEW_2D;
+    private static final double RADIUS_2D = 0.5;
+    /** Scales the octave sum to the range of {@link NoiseGenerator}, so the two are interchangeable */
+    private static final double AMPLITUDE = 0.5;
+
+    private final int[] p = new int[TABLE_SIZE * 2];
+    private final int startPoint;
+    private final boolean useFloat;
+
+    /**
+     * Constructs a SimplexNoiseGenerator instance.
+     *
+     * @param seed The seed that shuffles the permutation table.
+     * @param startPoint The period of the largest octave; octaves halve down to a period of 1.
+     * @param useFloat Whether to do the math in floats rather than doubles.
+     */
+    public SimplexNoiseGenerator(long seed, int startPoint, boolean useFloat) {
+        this.startPoint = startPoint;
+        this.useFloat = useFloat;
+        Random random = new Random(seed);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            p[i] = i;
+        }
+        for (int i = TABLE_SIZE - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = p[i];
+            p[i] = p[j];
+            p[j] = swap;
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            p[TABLE_SIZE + i] = p[i];
+        }
+    }
+
+    @Override
+    public double noise(double x, double factor) {
+        double value = 0.0;
+        for (int currentPoint = startPoint; currentPoint >= 1; currentPoint /= 2) {
+            value += (useFloat ? simplex((float) (x / currentPoint)) : simplex(x / currentPoint))
+                    * currentPoint;
+        }
+        return value * factor * AMPLITUDE / startPoint;
+    }
+
+    @Override
+    public double noise(double x, double y, double factor) {
+        double value = 0.0;
+        for (int currentPoint = startPoint; currentPoint >= 1; currentPoint /= 2) {
+            value += (useFloat
+                    ? simplex((float) (x / currentPoint), (float) (y / currentPoint))
+                    : simplex(x / currentPoint, y / currentPoint)) * currentPoint;
+        }
+        return value * factor * AMPLITUDE / startPoint;
+    }
+
+    /**
+     * Samples a single octave of 1D simplex noise.
+     *
+     * @param x The coordinate to sample.
+     * @return The noise at x, in the range [-1, 1].
+     */
+    private double simplex(double x) {
+        int i0 = fastFloor(x);
+        double x0 = x - i0;
+        double x1 = x0 - 1.0;
+        double t0 = 1.0 - x0 * x0;
+        double t1 = 1.0 - x1 * x1;
+        t0 *= t0;
+        t1 *= t1;
+        return SCALE_1D * (t0 * t0 * grad(p[i0 & TABLE_MASK], x0)
+                + t1 * t1 * grad(p[(i0 + 1) & TABLE_MASK], x1));
+    }
+
+    /**
+     * Samples a single octave of 1D simplex noise in floats.
+     *
+     * @param x The coordinate to sample.
+     * @return The noise at x, in the range [-1, 1].
+     */
+    private float simplex(float x) {
+        int i0 = fastFloor(x);
+        float x0 = x - i0;
+        float x1 = x0 - 1f;
+        float t0 = 1f - x0 * x0;
+        float t1 = 1f - x1 * x1;
+        t0 *= t0;
+        t1 *= t1;
+        return (float) SCALE_1D * (t0 * t0 * grad(p[i0 & TABLE_MASK], x0)
+                + t1 * t1 * grad(p[(i0 + 1) & TABLE_MASK], x1));
+    }
+
+    /**
+     * Samples a single octave of 2D simplex noise.
+     *
+     * @param x The x-coordinate to sample.
+     * @param y The y-coordinate to sample.
+     * @return The noise at (x, y), in the range [-1, 1].
+     */
+    private double simplex(double x, double y) {
+        double s = (x + y) * SKEW_2D;
+        int i = fastFloor(x + s);
+        int j = fastFloor(y + s);
+        double t = (i + j) * UNSKEW_2D;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
+        double x1 = x0 - i1 + UNSKEW_2D;
+        double y1 = y0 - j1 + UNSKEW_2D;
+        double x2 = x0 - 1.0 + 2.0 * UNSKEW_2D;
+        double y2 = y0 - 1.0 + 2.0 * UNSKEW_2D;
+        int ii = i & TABLE_MASK;
+        int jj = j & TABLE_MASK;
+        return SCALE_2D * (corner(p[ii + p[jj]], x0, y0)
+                + corner(p[ii + i1 + p[jj + j1]], x1, y1)
+                + corner(p[ii + 1 + p[jj + 1]], x2, y2));
+    }
+
+    /**
+     * Samples a single octave of 2D simplex noise in floats.
+     *
+     * @param x The x-coordinate to sample.
+     * @param y The y-coordinate to sample.
+     * @return The noise at (x, y), in the range [-1, 1].
+     */
+    private float simplex(float x, float y) {
+        float s = (x + y) * SKEW_2D_FLOAT;
+        int i = fastFloor(x + s);
+        int j = fastFloor(y + s);
+        float t = (i + j) * UNSKEW_2D_FLOAT;
+        float x0 = x - (i - t);
+        float y0 = y - (j - t);
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
+        float x1 = x0 - i1 + UNSKEW_2D_FLOAT;
+        float y1 = y0 - j1 + UNSKEW_2D_FLOAT;
+        float x2 = x0 - 1f + 2f * UNSKEW_2D_FLOAT;
+        float y2 = y0 - 1f + 2f * UNSKEW_2D_FLOAT;
+        int ii = i & TABLE_MASK;
+        int jj = j & TABLE_MASK;
+        return (float) SCALE_2D * (corner(p[ii + p[jj]], x0, y0)
+                + corner(p[ii + i1 + p[jj + j1]], x1, y1)
+                + corner(p[ii + 1 + p[jj + 1]], x2, y2));
+    }
+
+    /**
+     * Gets the contribution of one corner of a 2D simplex.
+     *
+     * @param hash The hashed corner.
+     * @param x The x offset from the corner.
+     * @param y The y offset from the corner.
+     * @return The contribution of the corner.
+     */
+    private static double corner(int hash, double x, double y) {
+        double t = RADIUS_2D - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        return t * t * grad(hash, x, y);
+    }
+
+    /**
+     * Gets the contribution of one corner of a 2D simplex, in floats.
+     *
+     * @param hash The hashed corner.
+     * @param x The x offset from the corner.
+     * @param y The y offset from the corner.
+     * @return The contribution of the corner.
+     */
+    private static float corner(int hash, float x, float y) {
+        float t = (float) RADIUS_2D - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        return t * t * grad(hash, x, y);
+    }
+
+    /**
+     * Picks one of 16 1D gradients from a hash and applies it to an offset.
+     *
+     * @param hash The hashed lattice point.
+     * @param x The offset from the lattice point.
+     * @return The gradient applied to the offset.
+     */
+    private static double grad(int hash, double x) {
+        int h = hash & 15;
+        double gradient = 1 + (h & 7);
+        return (h & 8) == 0 ? gradient * x : -gradient * x;
+    }
+
+    /**
+     * Picks one of 16 1D gradients from a hash and applies it to an offset, in floats.
+     *
+     * @param hash The hashed lattice point.
+     * @param x The offset from the lattice point.
+     * @return The gradient applied to the offset.
+     */
+    private static float grad(int hash, float x) {
+        int h = hash & 15;
+        float gradient = 1 + (h & 7);
+        return (h & 8) == 0 ? gradient * x : -gradient * x;
+    }
+
+    /**
+     * Picks one of 8 2D gradients from a hash and applies it to an offset.
+     *
+     * @param hash The hashed corner.
+     * @param x The x offset from the corner.
+     * @param y The y offset from the corner.
+     * @return The gradient applied to the offset.
+     */
+    private static double grad(int hash, double x, double y) {
+        int h = hash & 7;
+        double u = h < 4 ? x : y;
+        double v = h < 4 ? y : x;
+        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? 2.0 * v : -2.0 * v);
+    }
+
+    /**
+     * Picks one of 8 2D gradients from a hash and applies it to an offset, in floats.
+     *
+     * @param hash The hashed corner.
+     * @param x The x offset from the corner.
+     * @param y The y offset from the corner.
+     * @return The gradient applied to the offset.
+     */
+    private static float grad(int hash, float x, float y) {
+        int h = hash & 7;
+        float u = h < 4 ? x : y;
+        float v = h < 4 ? y : x;
+        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? 2f * v : -2f * v);
+    }
+
+    /**
+     * Rounds down without the overhead of {@link Math#floor}.
+     *
+     * @param x The value to round.
+     * @return The largest int not greater than x.
+     */
+    private static int fastFloor(double x) {
+        int truncated = (int) x;
+        return x < truncated ? truncated - 1 : truncated;
+    }
+
+    /**
+     * Rounds down without the overhead of {@link Math#floor}, in floats.
+     *
+     * @param x The value to round.
+     * @return The largest int not greater than x.
+     */
+    private static int fastFloor(float x) {
+        int truncated = (int) x;
+        return x < truncated ? truncated - 1 : truncated;
+    }
+}
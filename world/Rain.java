@@ -14,6 +14,7 @@ import java.util.List;
 /**
  * Represents rain in the game world.
  * This class handles the creation and disappearance of rain blocks triggered by specific events.
+ * A rain block is removed from the game once it has faded out.
  */
 public class Rain implements JumpListener {
 
@@ -29,6 +30,7 @@ public class Rain implements JumpListener {
 
     private final List<Block> rainBlocks;
     private final GameObjectCollection gameObjects;
+    private int dropsPerShower = NUM_RAINS;
 
     /**
      * Constructs a Rain instance.
@@ -47,7 +49,7 @@ public class Rain implements JumpListener {
      * @return A list of rain blocks created at the specified position.
      */
     public List<Block> create(Vector2 cloudPosition) {
-        for (int i = 0; i < NUM_RAINS; i++) {
+        for (int i = 0; i < dropsPerShower; i++) {
             int rainDropX = (int) (cloudPosition.x() + i * (RAIN_SIZE + SPACE));
             int rainDropY = (int) cloudPosition.y() + RAIN_SIZE;
             Vector2 position = new Vector2(rainDropX, rainDropY);
@@ -75,12 +77,49 @@ public class Rain implements JumpListener {
                         DISAPPEAR_INITIAL_VALUE,
                         DISAPPEAR_FINAL_VALUE, Transition.LINEAR_INTERPOLATOR_FLOAT,
                         DISAPPEAR_TRANSITION_TIME,
-                        Transition.TransitionType.TRANSITION_ONCE, null
+                        Transition.TransitionType.TRANSITION_ONCE, () -> remove(block)
                 );
             }
         }
     }
 
+    /**
+     * Removes a rain block that has faded out from the game.
+     *
+     * @param block The rain block.
+     */
+    private void remove(Block block) {
+        rainBlocks.remove(block);
+        gameObjects.removeGameObject(block, Layer.STATIC_OBJECTS);
+    }
+
+    /**
+     * Sets the number of rain drops every shower creates.
+     *
+     * @param dropsPerShower The number of rain drops.
+     */
+    public void setDropsPerShower(int dropsPerShower) {
+        this.dropsPerShower = dropsPerShower;
+    }
+
+    /**
+     * Gets the number of rain drops every shower creates.
+     *
+     * @return The number of rain drops.
+     */
+    public int getDropsPerShower() {
+        return dropsPerShower;
+    }
+
+    /**
+     * Gets the number of rain drops in the game.
+     *
+     * @return The number of rain drops.
+     */
+    public int getDropCount() {
+        return rainBlocks.size();
+    }
+
     /**
      * Handles jump events to create rain.
      *
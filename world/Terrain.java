@@ -1,19 +1,34 @@
 package pepse.world;
 
-import danogl.gui.rendering.RectangleRenderable;
+import danogl.collisions.Layer;
 import danogl.util.Vector2;
 import pepse.util.ColorSupplier;
-import pepse.util.NoiseGenerator;
+import pepse.util.Noise;
+import pepse.util.NoiseType;
+import pepse.world.cache.WorldCache;
 
 import java.awt.*;
+import java.awt.image.IndexColorModel;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 
 /**
  * Represents the terrain in the game world.
- * The terrain is procedurally generated and consists of blocks forming the ground.
+ * The terrain is procedurally generated and stored as compact tile data in chunks: a surface
+ * height per column and a palette index per cell. Real blocks are only materialized where
+ * something needs to collide with the ground, chunks further than the level-of-detail
+ * distance from the avatar are kept coarse, and only the vertical bands of cells near the
+ * camera are generated, so the terrain can be hundreds of blocks deep.
+ * Below the surface, caves are carved and ore veins placed from two 2D noise fields. They are
+ * evaluated once per band into arrays cached on the chunk, which its colors and its collision
+ * blocks are both derived from.
  */
 public class Terrain {
 
@@ -22,27 +37,109 @@ public class Terrain {
      */
     public static final String GROUND_TAG = "ground";
 
+    /**
+     * Layer that terrain chunks are drawn in. It is drawn just below the static objects
+     * and does not take part in collisions.
+     */
+    public static final int CHUNK_LAYER = Layer.STATIC_OBJECTS - 1;
+
     private static final float INITIAL_OF_GROUND_HEIGHT = 2f / 3f;
     private static final int TERRAIN_DEPTH = 20;
+    private static final int VERTICAL_MARGIN = 300;
     private static final int NOISE_FACTOR = 55;
+    private static final int PALETTE_SIZE = 16;
+    private static final int ORE_PALETTE_SIZE = 4;
     private static final Color BASE_GROUND_COLOR = new Color(212, 123, 74);
-    private final NoiseGenerator genarator1;
+    private static final Color BASE_ORE_COLOR = new Color(120, 110, 130);
+    private static final int CAVE_NOISE_SCALE = 16;
+    private static final int ORE_NOISE_SCALE = 4;
+    private static final int CAVE_SEED_OFFSET = 1;
+    private static final int ORE_SEED_OFFSET = 2;
+    private static final float CAVE_THRESHOLD = 0.3f;
+    private static final float ORE_THRESHOLD = 0.45f;
+    private static final int CAVE_MIN_ROW = 4;
+    private static final int ORE_MIN_ROW = 6;
+    private static final float CELL_CENTER = 0.5f;
+    private static final long FINGERPRINT_MULTIPLIER = 31;
+    private final Noise genarator1;
+    private final Noise caveGenerator;
+    private final Noise oreGenerator;
     private final float groundHeightAtX0;
-    private final Random random;
-    private List<Block> blocks;
+    private final int seed;
+    private final int depth;
+    private final NoiseType noiseType;
+    private final IndexColorModel colorModel;
+    private final HashMap<Integer, TerrainChunk> chunks = new HashMap<>();
+    /** Materialized blocks, keyed by the x-coordinate of their column */
+    private final HashMap<Integer, List<Block>> blocks = new HashMap<>();
+    private WorldCache worldCache;
+    /** The index, in the whole world, of the chunk that starts at x = 0 */
+    private int originChunk;
+    private float lodDistance = Float.POSITIVE_INFINITY;
+    private float[] focusXs = new float[0];
+    private float viewTop;
+    private float viewBottom;
 
     /**
-     * Constructs a Terrain instance.
+     * Constructs a Terrain instance with the default depth.
      *
      * @param windowDimensions The dimensions of the game window.
      * @param seed The seed for generating procedural noise.
      */
     public Terrain(Vector2 windowDimensions, int seed) {
-        this.random = new Random(seed);
-        this.blocks = new ArrayList<>();
-        this.groundHeightAtX0 = (windowDimensions.y() * INITIAL_OF_GROUND_HEIGHT);
+        this(windowDimensions, seed, TERRAIN_DEPTH);
+    }
+
+    /**
+     * Constructs a Terrain instance.
+     *
+     * @param windowDimensions The dimensions of the game window.
+     * @param seed The seed for generating procedural noise.
+     * @param depth The number of blocks below the surface of every column.
+     */
+    public Terrain(Vector2 windowDimensions, int seed, int depth) {
+        this(windowDimensions, seed, depth, NoiseType.PERLIN);
+    }
+
+    /**
+     * Constructs a Terrain instance generated with a specific noise implementation.
+     *
+     * @param windowDimensions The dimensions of the game window.
+     * @param seed The seed for generating procedural noise.
+     * @param depth The number of blocks below the surface of every column.
+     * @param noiseType The noise implementation to generate the surface, caves and ores with.
+     */
+    public Terrain(Vector2 windowDimensions, int seed, int depth, NoiseType noiseType) {
+        this(windowDimensions.y() * INITIAL_OF_GROUND_HEIGHT, seed, depth, noiseType);
+    }
+
+    /**
+     * Constructs a Terrain instance with an explicit vertical scale, independent of the window.
+     *
+     * @param groundLevel The mean height of the ground, which is also how high the hills
+     *                    rise and how deep the valleys fall around it, in pixels.
+     * @param seed The seed for generating procedural noise.
+     * @param depth The number of blocks below the surface of every column.
+     * @param noiseType The noise implementation to generate the surface, caves and ores with.
+     */
+    public Terrain(float groundLevel, int seed, int depth, NoiseType noiseType) {
+        this.seed = seed;
+        this.depth = depth;
+        this.noiseType = noiseType;
+        this.viewBottom = groundLevel / INITIAL_OF_GROUND_HEIGHT;
+        this.groundHeightAtX0 = groundLevel;
         int tempGroundHeightAtX0 = (int) groundHeightAtX0;
-        genarator1 = new NoiseGenerator(seed, tempGroundHeightAtX0);
+        genarator1 = noiseType.create(seed, tempGroundHeightAtX0);
+        caveGenerator = noiseType.create(seed + CAVE_SEED_OFFSET, CAVE_NOISE_SCALE);
+        oreGenerator = noiseType.create(seed + ORE_SEED_OFFSET, ORE_NOISE_SCALE);
+        Color[] palette = new Color[PALETTE_SIZE + ORE_PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            palette[i] = ColorSupplier.approximateColor(BASE_GROUND_COLOR);
+        }
+        for (int i = 0; i < ORE_PALETTE_SIZE; i++) {
+            palette[PALETTE_SIZE + i] = ColorSupplier.approximateColor(BASE_ORE_COLOR);
+        }
+        colorModel = TerrainChunkRenderable.createColorModel(palette, BASE_GROUND_COLOR);
     }
 
     /**
@@ -52,8 +149,298 @@ public class Terrain {
      * @return The ground height at the specified x-coordinate.
      */
     public float groundHeightAt(float x) {
-        random.setSeed((long) x);
-        return groundHeightAtX0 + (float) genarator1.noise(x, NOISE_FACTOR);
+        return groundHeightAtX0 + (float) genarator1.noise(originX() + (double) x, NOISE_FACTOR);
+    }
+
+    /**
+     * Generates the tile data of a chunk and keeps it resident. The surface heights are read
+     * from the world cache when they were generated before, and recorded to it otherwise.
+     *
+     * @param index The index of the chunk.
+     * @return The generated chunk, which draws itself once added to the game.
+     */
+    public TerrainChunk createChunk(int index) {
+        return createChunks(List.of(index), null).get(0);
+    }
+
+    /**
+     * Generates the tile data of several chunks and keeps them resident. A run of chunks wider
+     * than a batch of columns, such as the surroundings of the avatar at startup or after a
+     * teleport, is split into batches that are built in parallel on a fork/join pool. The world
+     * cache is only read and written on the calling thread, before and after.
+     *
+     * @param indices The indices of the chunks.
+     * @param pool The pool to build the chunks on, or null to build them sequentially.
+     * @return The generated chunks, in the order of their indices.
+     */
+    public List<TerrainChunk> createChunks(List<Integer> indices, ForkJoinPool pool) {
+        int[] chunkIndices = new int[indices.size()];
+        IntBuffer[] cachedHeights = new IntBuffer[chunkIndices.length];
+        for (int i = 0; i < chunkIndices.length; i++) {
+            chunkIndices[i] = indices.get(i);
+            cachedHeights[i] = worldCache == null ? null
+                    : worldCache.getChunkHeights(originChunk + chunkIndices[i]);
+        }
+        TerrainChunk[] createdChunks = new TerrainChunk[chunkIndices.length];
+        TerrainChunkTask task = new TerrainChunkTask(this, chunkIndices, cachedHeights, createdChunks,
+                0, chunkIndices.length);
+        if (pool == null) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        for (int i = 0; i < createdChunks.length; i++) {
+            TerrainChunk chunk = createdChunks[i];
+            if (worldCache != null && cachedHeights[i] == null) {
+                int[] generatedHeights = new int[TerrainChunk.COLUMNS];
+                for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+                    generatedHeights[column] = chunk.getHeight(column);
+                }
+                worldCache.putChunkHeights(originChunk + chunk.getIndex(), generatedHeights);
+            }
+            chunks.put(chunk.getIndex(), chunk);
+        }
+        return Arrays.asList(createdChunks);
+    }
+
+    /**
+     * Builds a chunk without registering it. Only reads the terrain's state, so chunks can be
+     * built on several threads.
+     *
+     * @param index The index of the chunk.
+     * @param heights The cached surface heights of the chunk, or null to generate them.
+     * @return The built chunk.
+     */
+    TerrainChunk buildChunk(int index, IntBuffer heights) {
+        if (heights == null) {
+            int[] generatedHeights = new int[TerrainChunk.COLUMNS];
+            for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+                generatedHeights[column] =
+                        (int) groundHeightAt(index * TerrainChunk.WIDTH + column * Block.SIZE);
+            }
+            heights = IntBuffer.wrap(generatedHeights);
+        }
+        TerrainChunk chunk = new TerrainChunk(index, heights, depth,
+                distanceToFocus(index) > lodDistance, colorModel);
+        updateBands(chunk);
+        return chunk;
+    }
+
+    /**
+     * Sets the cache that chunk heights are read from and recorded to.
+     *
+     * @param worldCache The world cache, or null to always generate heights.
+     */
+    public void setWorldCache(WorldCache worldCache) {
+        this.worldCache = worldCache;
+    }
+
+    /**
+     * Gets a fingerprint of the parameters the surface is generated with, so that a world cache
+     * written with different parameters is not reused.
+     *
+     * @return The fingerprint of the generation parameters.
+     */
+    public long getFingerprint() {
+        long fingerprint = noiseType.ordinal();
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + Float.floatToIntBits(groundHeightAtX0);
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + NOISE_FACTOR;
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + TerrainChunk.COLUMNS;
+        return fingerprint * FINGERPRINT_MULTIPLIER + Block.SIZE;
+    }
+
+    /**
+     * Sets how far from the avatar chunks are kept at full detail. Chunks beyond it are
+     * coarse: drawn as merged columns, without per-cell colors.
+     *
+     * @param lodDistance The level-of-detail distance, in pixels.
+     */
+    public void setLodDistance(float lodDistance) {
+        this.lodDistance = lodDistance;
+    }
+
+    /**
+     * Gets how far from the avatar chunks are kept at full detail.
+     *
+     * @return The level-of-detail distance, in pixels.
+     */
+    public float getLodDistance() {
+        return lodDistance;
+    }
+
+    /**
+     * Gets the number of resident terrain chunks.
+     *
+     * @return The number of chunks.
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Gets the number of materialized collision blocks.
+     *
+     * @return The number of blocks.
+     */
+    public int getBlockCount() {
+        int count = 0;
+        for (List<Block> columnBlocks : blocks.values()) {
+            count += columnBlocks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Refines the resident chunks that an avatar has come close to, and coarsens the ones
+     * every avatar has moved away from. Coarsening waits for an extra chunk width of distance,
+     * so a chunk on the boundary does not switch back and forth.
+     *
+     * @param focusXs The x-coordinates of the avatars.
+     */
+    public void updateLevelOfDetail(float... focusXs) {
+        this.focusXs = focusXs.clone();
+        for (TerrainChunk chunk : chunks.values()) {
+            float distance = distanceToFocus(chunk.getIndex());
+            if (chunk.isCoarse() && distance <= lodDistance) {
+                chunk.refine();
+                updateBands(chunk);
+            } else if (!chunk.isCoarse() && distance > lodDistance + TerrainChunk.WIDTH) {
+                chunk.coarsen();
+            }
+        }
+    }
+
+    /**
+     * Moves the vertical range of the terrain that is resident. Only the bands of cells that
+     * overlap the view, plus a margin, are generated; bands the view has left are dropped.
+     *
+     * @param viewTop The minimum y-coordinate of the view, in world coordinates.
+     * @param viewBottom The maximum y-coordinate of the view, in world coordinates.
+     */
+    public void updateVerticalRange(float viewTop, float viewBottom) {
+        this.viewTop = viewTop;
+        this.viewBottom = viewBottom;
+        for (TerrainChunk chunk : chunks.values()) {
+            updateBands(chunk);
+        }
+    }
+
+    /**
+     * Filters and removes chunks whose center lies outside the specified range.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @param maxX The maximum x-coordinate of the range.
+     * @return A list of removed chunks.
+     */
+    public List<TerrainChunk> filterChunksInRange(int minX, int maxX) {
+        List<TerrainChunk> removedChunks = new ArrayList<>();
+        Iterator<TerrainChunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            TerrainChunk chunk = iterator.next();
+            int centerX = chunk.getMinX() + TerrainChunk.WIDTH / 2;
+            if (centerX < minX || centerX > maxX) {
+                removedChunks.add(chunk);
+                iterator.remove();
+            }
+        }
+        return removedChunks;
+    }
+
+    /**
+     * Moves the origin of the world, so that coordinates stay small and precise however far
+     * the avatar walks. Every resident chunk and block moves the other way, and is keyed by its
+     * new coordinates; the world itself is generated from the same absolute coordinates.
+     *
+     * @param shift The distance to move the origin by, in pixels; a whole number of chunks.
+     * @throws IllegalArgumentException If the distance is not a whole number of chunks.
+     */
+    public void rebase(int shift) {
+        if (shift % TerrainChunk.WIDTH != 0) {
+            throw new IllegalArgumentException("Cannot move the origin by part of a chunk: " + shift);
+        }
+        int chunkShift = shift / TerrainChunk.WIDTH;
+        originChunk += chunkShift;
+        List<TerrainChunk> movedChunks = new ArrayList<>(chunks.values());
+        chunks.clear();
+        for (TerrainChunk chunk : movedChunks) {
+            chunk.rebase(chunkShift);
+            chunks.put(chunk.getIndex(), chunk);
+        }
+        Map<Integer, List<Block>> movedBlocks = new HashMap<>(blocks);
+        blocks.clear();
+        for (Map.Entry<Integer, List<Block>> entry : movedBlocks.entrySet()) {
+            for (Block block : entry.getValue()) {
+                block.setTopLeftCorner(block.getTopLeftCorner().add(new Vector2(-shift, 0)));
+            }
+            blocks.put(entry.getKey() - shift, entry.getValue());
+        }
+    }
+
+    /**
+     * Checks whether a chunk is resident.
+     *
+     * @param index The index of the chunk.
+     * @return True if the chunk is resident, false otherwise.
+     */
+    public boolean hasChunk(int index) {
+        return chunks.containsKey(index);
+    }
+
+    /**
+     * Removes a single chunk, along with the collision blocks materialized over it.
+     *
+     * @param index The index of the chunk.
+     * @param removedBlocks The list that the removed collision blocks are added to.
+     * @return The removed chunk, or null if it was not resident.
+     */
+    public TerrainChunk removeChunk(int index, List<Block> removedBlocks) {
+        TerrainChunk chunk = chunks.remove(index);
+        if (chunk != null) {
+            for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+                List<Block> columnBlocks = blocks.remove(chunk.getMinX() + column * Block.SIZE);
+                if (columnBlocks != null) {
+                    removedBlocks.addAll(columnBlocks);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Materializes collision blocks for the cells in the specified range that can be touched:
+     * the surface cell of every column, and the side cells that stick out above a neighbour.
+     * Cells carved out by caves get no block. Columns that are already materialized, or whose
+     * chunk is not resident, are skipped.
+     * The blocks are invisible, since the chunks already draw the ground.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @param maxX The maximum x-coordinate of the range.
+     * @return A list of newly materialized blocks.
+     */
+    public List<Block> materializeInRange(int minX, int maxX) {
+        List<Block> createdBlocks = new ArrayList<>();
+        for (int x = Math.floorDiv(minX, Block.SIZE) * Block.SIZE; x <= maxX; x += Block.SIZE) {
+            TerrainChunk chunk = chunks.get(Math.floorDiv(x, TerrainChunk.WIDTH));
+            if (chunk == null || blocks.containsKey(x)) {
+                continue;
+            }
+            int column = (x - chunk.getMinX()) / Block.SIZE;
+            int height = chunk.getHeight(column);
+            int exposedBottom = Math.max(height + Block.SIZE,
+                    Math.max(heightAt(x - Block.SIZE), heightAt(x + Block.SIZE)));
+            List<Block> columnBlocks = new ArrayList<>();
+            for (int row = 0; row < depth && height + row * Block.SIZE < exposedBottom; row++) {
+                if (isCave(chunk, column, row)) {
+                    continue;
+                }
+                Block block = new Block(new Vector2(x, height + row * Block.SIZE), null);
+                block.setTag(GROUND_TAG);
+                columnBlocks.add(block);
+            }
+            blocks.put(x, columnBlocks);
+            createdBlocks.addAll(columnBlocks);
+        }
+        return createdBlocks;
     }
 
     /**
@@ -64,13 +451,22 @@ public class Terrain {
      * @return A list of removed blocks that were outside the range.
      */
     public List<Block> filterBlocksInRange(int minX, int maxX) {
+        return filterBlocks(x -> x >= minX && x <= maxX);
+    }
+
+    /**
+     * Filters and removes the blocks of the columns that should not be kept.
+     *
+     * @param retained Whether the column at an x-coordinate should be kept.
+     * @return A list of removed blocks.
+     */
+    public List<Block> filterBlocks(IntPredicate retained) {
         List<Block> removedBlocks = new ArrayList<>();
-        Iterator<Block> iterator = blocks.iterator();
+        Iterator<Map.Entry<Integer, List<Block>>> iterator = blocks.entrySet().iterator();
         while (iterator.hasNext()) {
-            Block block = iterator.next();
-            int x = (int) block.getTopLeftCorner().x();
-            if (x < minX || x > maxX) {
-                removedBlocks.add(block);
+            Map.Entry<Integer, List<Block>> entry = iterator.next();
+            if (!retained.test(entry.getKey())) {
+                removedBlocks.addAll(entry.getValue());
                 iterator.remove();
             }
         }
@@ -78,24 +474,183 @@ public class Terrain {
     }
 
     /**
-     * Creates blocks within the specified range.
+     * Brings a chunk's resident bands in line with the view: bands that overlap the view,
+     * plus a margin, are kept, and the cells of the ones that are missing are generated.
+     * The noise fields of a band are only evaluated the first time its cells are needed.
      *
-     * @param minX The minimum x-coordinate of the range.
-     * @param maxX The maximum x-coordinate of the range.
-     * @return A list of blocks created within the specified range.
+     * @param chunk The chunk to update.
      */
-    public List<Block> createInRange(int minX, int maxX) {
-        this.blocks = new ArrayList<>();
-        for (int x = Math.floorDiv(minX, Block.SIZE) * Block.SIZE; x <= maxX; x += Block.SIZE) {
-            for (int y = (int) groundHeightAt(x);
-                 y < (Block.SIZE * TERRAIN_DEPTH) + (int) groundHeightAt(x); y += Block.SIZE) {
-                Block block = new Block(new Vector2(x, y),
-                        new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR)));
-                block.setTag(GROUND_TAG);
-                blocks.add(block);
+    private void updateBands(TerrainChunk chunk) {
+        int bandHeight = TerrainChunk.BAND_ROWS * Block.SIZE;
+        int minBand = Math.max(0, (int) Math.floor(
+                (viewTop - VERTICAL_MARGIN - chunk.getBottomSurface()) / bandHeight));
+        int maxBand = Math.min(chunk.getBandCount() - 1, (int) Math.floor(
+                (viewBottom + VERTICAL_MARGIN - chunk.getTop()) / bandHeight));
+        if (minBand != chunk.getMinBand() || maxBand != chunk.getMaxBand()) {
+            chunk.setBandRange(minBand, maxBand);
+        }
+        if (chunk.isCoarse()) {
+            return;
+        }
+        for (int band = minBand; band <= maxBand; band++) {
+            if (!chunk.hasBandTiles(band)) {
+                if (!chunk.hasBandNoise(band)) {
+                    createBandNoise(chunk, band);
+                }
+                chunk.setBandTiles(band, createBandTiles(chunk, band));
             }
         }
-        return blocks;
     }
 
+    /**
+     * Evaluates the cave and ore noise of every cell of a band, and caches them on the chunk.
+     *
+     * @param chunk The chunk the band belongs to.
+     * @param band The band index.
+     */
+    private void createBandNoise(TerrainChunk chunk, int band) {
+        int rows = chunk.getBandRows(band);
+        int firstRow = band * TerrainChunk.BAND_ROWS;
+        float[] caveNoise = new float[TerrainChunk.COLUMNS * rows];
+        float[] oreNoise = new float[TerrainChunk.COLUMNS * rows];
+        for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+            int x = chunk.getMinX() + column * Block.SIZE;
+            int height = chunk.getHeight(column);
+            for (int row = 0; row < rows; row++) {
+                caveNoise[column * rows + row] = caveNoiseAt(x, height, firstRow + row);
+                oreNoise[column * rows + row] = oreNoiseAt(x, height, firstRow + row);
+            }
+        }
+        chunk.setBandNoise(band, caveNoise, oreNoise);
+    }
+
+    /**
+     * Picks the tile of every cell of a band from its cached noise fields: air where a cave
+     * is carved, an ore color inside a vein, and a ground color everywhere else.
+     *
+     * @param chunk The chunk the band belongs to.
+     * @param band The band index.
+     * @return The tile of each cell of the band, column after column, top to bottom.
+     */
+    private byte[] createBandTiles(TerrainChunk chunk, int band) {
+        int rows = chunk.getBandRows(band);
+        int firstRow = band * TerrainChunk.BAND_ROWS;
+        byte[] tiles = new byte[TerrainChunk.COLUMNS * rows];
+        for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+            int x = chunk.getMinX() + column * Block.SIZE;
+            for (int row = 0; row < rows; row++) {
+                int tile;
+                if (isCave(chunk, column, firstRow + row)) {
+                    tile = TerrainChunk.AIR;
+                } else if (firstRow + row >= ORE_MIN_ROW
+                        && chunk.getOreNoise(column, firstRow + row) > ORE_THRESHOLD) {
+                    tile = PALETTE_SIZE + (paletteIndexAt(x, firstRow + row) & (ORE_PALETTE_SIZE - 1));
+                } else {
+                    tile = paletteIndexAt(x, firstRow + row);
+                }
+                tiles[column * rows + row] = (byte) tile;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Checks whether a cell is carved out by a cave. The rows just below the surface are never
+     * carved, so the ground the avatar walks on stays intact. The cached noise of the cell's
+     * band is used when there is one.
+     *
+     * @param chunk The chunk the cell belongs to.
+     * @param column The column index inside the chunk.
+     * @param row The row of the cell, counted down from the surface.
+     * @return True if the cell is air, false if it is solid.
+     */
+    private boolean isCave(TerrainChunk chunk, int column, int row) {
+        if (row < CAVE_MIN_ROW) {
+            return false;
+        }
+        float noise = chunk.hasBandNoise(row / TerrainChunk.BAND_ROWS)
+                ? chunk.getCaveNoise(column, row)
+                : caveNoiseAt(chunk.getMinX() + column * Block.SIZE, chunk.getHeight(column), row);
+        return noise > CAVE_THRESHOLD;
+    }
+
+    /**
+     * Evaluates the cave noise at the center of a cell.
+     *
+     * @param x The x-coordinate of the cell's column.
+     * @param height The surface height of the cell's column.
+     * @param row The row of the cell, counted down from the surface.
+     * @return The cave noise of the cell.
+     */
+    private float caveNoiseAt(int x, int height, int row) {
+        return (float) caveGenerator.noise((originX() + x) / (double) Block.SIZE + CELL_CENTER,
+                (float) height / Block.SIZE + row + CELL_CENTER, 1);
+    }
+
+    /**
+     * Evaluates the ore noise at the center of a cell.
+     *
+     * @param x The x-coordinate of the cell's column.
+     * @param height The surface height of the cell's column.
+     * @param row The row of the cell, counted down from the surface.
+     * @return The ore noise of the cell.
+     */
+    private float oreNoiseAt(int x, int height, int row) {
+        return (float) oreGenerator.noise((originX() + x) / (double) Block.SIZE + CELL_CENTER,
+                (float) height / Block.SIZE + row + CELL_CENTER, 1);
+    }
+
+    /**
+     * Gets the horizontal distance between the nearest avatar and the nearest edge of a chunk.
+     *
+     * @param index The index of the chunk.
+     * @return The distance, or 0 if an avatar is above the chunk.
+     */
+    private float distanceToFocus(int index) {
+        float centerX = index * TerrainChunk.WIDTH + TerrainChunk.WIDTH / 2f;
+        float distance = Float.POSITIVE_INFINITY;
+        for (float focusX : focusXs) {
+            distance = Math.min(distance, Math.abs(centerX - focusX));
+        }
+        return Math.max(0, distance - TerrainChunk.WIDTH / 2f);
+    }
+
+    /**
+     * Gets the surface height of a column, from its chunk if it is resident.
+     *
+     * @param x The x-coordinate of the column, aligned to the block size.
+     * @return The surface height of the column.
+     */
+    private int heightAt(int x) {
+        TerrainChunk chunk = chunks.get(Math.floorDiv(x, TerrainChunk.WIDTH));
+        if (chunk == null) {
+            return (int) groundHeightAt(x);
+        }
+        return chunk.getHeight((x - chunk.getMinX()) / Block.SIZE);
+    }
+
+    /**
+     * Gets the absolute x-coordinate of the origin of the world.
+     *
+     * @return The distance from the absolute origin to x = 0, in pixels.
+     */
+    private long originX() {
+        return (long) originChunk * TerrainChunk.WIDTH;
+    }
+
+    /**
+     * Picks the palette color of a cell. The choice is a hash of the seed and the cell's
+     * position, so a cell keeps its color when its chunk is generated again.
+     *
+     * @param x The x-coordinate of the cell's column.
+     * @param row The row of the cell, counted down from the surface.
+     * @return The palette index of the cell.
+     */
+    private int paletteIndexAt(int x, int row) {
+        int hash = seed * 0x9E3779B1 ^ (int) (originX() + x) * 0x85EBCA6B ^ row * 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        hash *= 0x7FEB352D;
+        hash ^= hash >>> 15;
+        return hash & (PALETTE_SIZE - 1);
+    }
 }
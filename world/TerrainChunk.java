@@ -0,0 +1,338 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+
+import java.awt.image.IndexColorModel;
+import java.nio.IntBuffer;
+
+/**
+ * Represents a fixed-width strip of terrain columns, stored as compact tile data.
+ * Each column keeps only its surface height, and each cell only a small index into the
+ * terrain's color palette. The chunk draws all of its cells itself as cached images,
+ * so no per-cell GameObject is needed to display the ground.
+ * The cells are split into vertical bands of {@link #BAND_ROWS} rows, and only the bands near
+ * the camera are resident, so the terrain can be arbitrarily deep. Each resident band also
+ * caches the cave and ore noise fields its cells were derived from.
+ * A chunk far from the avatar can be coarse: it drops its cells and is drawn as one merged
+ * rectangle per column, until it is refined again.
+ */
+public class TerrainChunk extends GameObject {
+
+    /**
+     * The number of block columns in a chunk.
+     */
+    public static final int COLUMNS = 16;
+
+    /**
+     * The width of a chunk in pixels.
+     */
+    public static final int WIDTH = COLUMNS * Block.SIZE;
+
+    /**
+     * The number of rows in a vertical band of cells.
+     */
+    public static final int BAND_ROWS = 20;
+
+    /**
+     * The tile of a cell that was carved out by a cave. It is drawn transparent.
+     */
+    public static final int AIR = -1;
+
+    private static final String TERRAIN_CHUNK_TAG = "terrainChunk";
+
+    private int index;
+    private final int depth;
+    private final IntBuffer heights;
+    private final int top;
+    private final int bottomSurface;
+    private final byte[][] bandTiles;
+    private final float[][] bandCaveNoise;
+    private final float[][] bandOreNoise;
+    private final TerrainChunkRenderable renderable;
+    private boolean coarse;
+    private int minBand = 0;
+    private int maxBand = -1;
+
+    /**
+     * Constructs a TerrainChunk instance, with no resident bands.
+     *
+     * @param index The index of the chunk; the chunk starts at x = index * WIDTH.
+     * @param heights The y-coordinate of the surface of each column; it may be a view of the
+     *                world cache, which is read but never copied.
+     * @param depth The number of cells in each column.
+     * @param coarse Whether the chunk starts coarse.
+     * @param colorModel The color model of the terrain, mapping tiles to colors.
+     */
+    public TerrainChunk(int index, IntBuffer heights, int depth, boolean coarse, IndexColorModel colorModel) {
+        super(Vector2.ZERO, Vector2.ONES, null);
+        this.index = index;
+        this.depth = depth;
+        this.heights = heights;
+        this.coarse = coarse;
+        this.bandTiles = new byte[(depth + BAND_ROWS - 1) / BAND_ROWS][];
+        this.bandCaveNoise = new float[bandTiles.length][];
+        this.bandOreNoise = new float[bandTiles.length][];
+        int minHeight = Integer.MAX_VALUE;
+        int maxHeight = Integer.MIN_VALUE;
+        for (int column = 0; column < COLUMNS; column++) {
+            minHeight = Math.min(minHeight, heights.get(column));
+            maxHeight = Math.max(maxHeight, heights.get(column));
+        }
+        this.top = minHeight;
+        this.bottomSurface = maxHeight;
+        setTopLeftCorner(new Vector2(getMinX(), top));
+        setDimensions(new Vector2(WIDTH, maxHeight + depth * Block.SIZE - top));
+        renderable = new TerrainChunkRenderable(this, colorModel);
+        renderer().setRenderable(renderable);
+        setTag(TERRAIN_CHUNK_TAG);
+    }
+
+    /**
+     * Gets the index of the chunk, relative to the origin of the world.
+     *
+     * @return The chunk index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Moves the chunk by a whole number of chunks, when the origin of the world is moved.
+     *
+     * @param chunkShift The number of chunks the origin moved by; the chunk moves the other way.
+     */
+    public void rebase(int chunkShift) {
+        index -= chunkShift;
+        setTopLeftCorner(new Vector2(getMinX(), top));
+    }
+
+    /**
+     * Gets the x-coordinate of the first column of the chunk.
+     *
+     * @return The minimum x-coordinate of the chunk.
+     */
+    public int getMinX() {
+        return index * WIDTH;
+    }
+
+    /**
+     * Gets the number of cells in each column.
+     *
+     * @return The depth of the chunk, in cells.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the y-coordinate of the topmost surface in the chunk.
+     *
+     * @return The top of the chunk.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Gets the y-coordinate of the lowest surface in the chunk.
+     *
+     * @return The lowest surface of the chunk.
+     */
+    public int getBottomSurface() {
+        return bottomSurface;
+    }
+
+    /**
+     * Gets the y-coordinate of the surface of a column.
+     *
+     * @param column The column index inside the chunk.
+     * @return The surface height of the column.
+     */
+    public int getHeight(int column) {
+        return heights.get(column);
+    }
+
+    /**
+     * Gets the number of vertical bands of the chunk.
+     *
+     * @return The number of bands.
+     */
+    public int getBandCount() {
+        return bandTiles.length;
+    }
+
+    /**
+     * Gets the number of rows in a band; only the last band may be shorter than {@link #BAND_ROWS}.
+     *
+     * @param band The band index.
+     * @return The number of rows in the band.
+     */
+    public int getBandRows(int band) {
+        return Math.min(BAND_ROWS, depth - band * BAND_ROWS);
+    }
+
+    /**
+     * Gets the first band that is resident.
+     *
+     * @return The index of the topmost resident band.
+     */
+    public int getMinBand() {
+        return minBand;
+    }
+
+    /**
+     * Gets the last band that is resident.
+     *
+     * @return The index of the lowest resident band, or less than {@link #getMinBand()} if none is.
+     */
+    public int getMaxBand() {
+        return maxBand;
+    }
+
+    /**
+     * Sets the bands that are resident. The cells, noise fields and images of the bands that
+     * leave the range are dropped; the cells of the bands that enter it must be supplied with
+     * {@link #setBandTiles}, unless the chunk is coarse.
+     *
+     * @param newMinBand The index of the topmost resident band.
+     * @param newMaxBand The index of the lowest resident band.
+     */
+    public void setBandRange(int newMinBand, int newMaxBand) {
+        for (int band = minBand; band <= maxBand; band++) {
+            if (band < newMinBand || band > newMaxBand) {
+                bandTiles[band] = null;
+                bandCaveNoise[band] = null;
+                bandOreNoise[band] = null;
+                renderable.invalidate(band);
+            }
+        }
+        minBand = newMinBand;
+        maxBand = newMaxBand;
+    }
+
+    /**
+     * Checks whether the cells of a band are resident.
+     *
+     * @param band The band index.
+     * @return True if the band's cells are resident, false otherwise.
+     */
+    public boolean hasBandTiles(int band) {
+        return bandTiles[band] != null;
+    }
+
+    /**
+     * Supplies the cells of a band.
+     *
+     * @param band The band index.
+     * @param tiles The palette index of each cell of the band, column after column, top to bottom.
+     */
+    public void setBandTiles(int band, byte[] tiles) {
+        bandTiles[band] = tiles;
+        renderable.invalidate(band);
+    }
+
+    /**
+     * Checks whether the noise fields of a band are cached.
+     *
+     * @param band The band index.
+     * @return True if the band's noise fields are cached, false otherwise.
+     */
+    public boolean hasBandNoise(int band) {
+        return bandCaveNoise[band] != null;
+    }
+
+    /**
+     * Caches the noise fields of a band, which stay cached for as long as the band is
+     * resident, even while the chunk is coarse.
+     *
+     * @param band The band index.
+     * @param caveNoise The cave noise of each cell of the band, laid out like its tiles.
+     * @param oreNoise The ore noise of each cell of the band, laid out like its tiles.
+     */
+    public void setBandNoise(int band, float[] caveNoise, float[] oreNoise) {
+        bandCaveNoise[band] = caveNoise;
+        bandOreNoise[band] = oreNoise;
+    }
+
+    /**
+     * Gets the cached cave noise of a cell. Only valid for a band whose noise is cached.
+     *
+     * @param column The column index inside the chunk.
+     * @param row The row index, counted down from the surface of the column.
+     * @return The cave noise of the cell.
+     */
+    public float getCaveNoise(int column, int row) {
+        int band = row / BAND_ROWS;
+        return bandCaveNoise[band][column * getBandRows(band) + row % BAND_ROWS];
+    }
+
+    /**
+     * Gets the cached ore noise of a cell. Only valid for a band whose noise is cached.
+     *
+     * @param column The column index inside the chunk.
+     * @param row The row index, counted down from the surface of the column.
+     * @return The ore noise of the cell.
+     */
+    public float getOreNoise(int column, int row) {
+        int band = row / BAND_ROWS;
+        return bandOreNoise[band][column * getBandRows(band) + row % BAND_ROWS];
+    }
+
+    /**
+     * Checks whether the chunk is coarse, in which case it has no cells and is drawn
+     * as merged columns.
+     *
+     * @return True if the chunk is coarse, false if it is at full detail.
+     */
+    public boolean isCoarse() {
+        return coarse;
+    }
+
+    /**
+     * Brings a coarse chunk to full detail. The cells of its resident bands must then be
+     * supplied with {@link #setBandTiles}.
+     */
+    public void refine() {
+        coarse = false;
+        renderable.invalidate();
+    }
+
+    /**
+     * Drops the chunk's cells, so that it is drawn as merged columns. The noise fields stay
+     * cached, so refining the chunk again does not evaluate any noise.
+     */
+    public void coarsen() {
+        coarse = true;
+        for (int band = 0; band < bandTiles.length; band++) {
+            bandTiles[band] = null;
+        }
+        renderable.invalidate();
+    }
+
+    /**
+     * Gets the palette index of a cell. Only valid for a resident band at full detail.
+     *
+     * @param column The column index inside the chunk.
+     * @param row The row index, counted down from the surface of the column.
+     * @return The palette index of the cell.
+     */
+    public int getTile(int column, int row) {
+        int band = row / BAND_ROWS;
+        return bandTiles[band][column * getBandRows(band) + row % BAND_ROWS];
+    }
+
+    /**
+     * Changes the palette index of a cell, and redraws its band the next time it is rendered.
+     * Only valid for a resident band at full detail.
+     *
+     * @param column The column index inside the chunk.
+     * @param row The row index, counted down from the surface of the column.
+     * @param tile The new palette index of the cell.
+     */
+    public void setTile(int column, int row, int tile) {
+        int band = row / BAND_ROWS;
+        bandTiles[band][column * getBandRows(band) + row % BAND_ROWS] = (byte) tile;
+        renderable.invalidate(band);
+    }
+}
@@ -0,0 +1,175 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+
+/**
+ * Draws the resident bands of a terrain chunk, one image per band.
+ * A band's cells are rasterized once, the first time the band is drawn, into a cached
+ * indexed image, and every frame after that only blits the image. The cache is dropped when
+ * the band changes or leaves the resident range. Coarse chunks are rasterized at a fraction
+ * of the resolution, as one merged rectangle per column, and scaled up when blitted.
+ */
+public class TerrainChunkRenderable implements Renderable {
+
+    private static final int BITS_PER_PIXEL = 8;
+    private static final int TRANSPARENT_INDEX = 0;
+    private static final int COARSE_SCALE = 5;
+
+    private final TerrainChunk chunk;
+    private final IndexColorModel colorModel;
+    private final BufferedImage[] images;
+
+    /**
+     * Constructs a TerrainChunkRenderable instance.
+     *
+     * @param chunk The chunk to draw.
+     * @param colorModel The color model of the terrain, as built by {@link #createColorModel}.
+     */
+    public TerrainChunkRenderable(TerrainChunk chunk, IndexColorModel colorModel) {
+        this.chunk = chunk;
+        this.colorModel = colorModel;
+        this.images = new BufferedImage[chunk.getBandCount()];
+    }
+
+    /**
+     * Builds the indexed color model shared by all the chunks of a terrain.
+     * Index 0 is transparent, palette index i is stored at index i + 1, and the color of
+     * merged columns is stored last.
+     *
+     * @param palette The colors that the terrain's tiles index.
+     * @param mergedColor The color of the merged columns of coarse chunks.
+     * @return The color model of the terrain.
+     */
+    public static IndexColorModel createColorModel(Color[] palette, Color mergedColor) {
+        int size = palette.length + 2;
+        byte[] reds = new byte[size];
+        byte[] greens = new byte[size];
+        byte[] blues = new byte[size];
+        for (int i = 0; i < palette.length; i++) {
+            reds[i + 1] = (byte) palette[i].getRed();
+            greens[i + 1] = (byte) palette[i].getGreen();
+            blues[i + 1] = (byte) palette[i].getBlue();
+        }
+        reds[size - 1] = (byte) mergedColor.getRed();
+        greens[size - 1] = (byte) mergedColor.getGreen();
+        blues[size - 1] = (byte) mergedColor.getBlue();
+        return new IndexColorModel(BITS_PER_PIXEL, size, reds, greens, blues, TRANSPARENT_INDEX);
+    }
+
+    /**
+     * Drops the cached images of all bands, so that they are rasterized again the next time
+     * the chunk is drawn.
+     */
+    public void invalidate() {
+        for (int band = 0; band < images.length; band++) {
+            images[band] = null;
+        }
+    }
+
+    /**
+     * Drops the cached image of a band, so that it is rasterized again the next time it is drawn.
+     *
+     * @param band The band index.
+     */
+    public void invalidate(int band) {
+        images[band] = null;
+    }
+
+    /**
+     * Blits the cached image of every resident band, rasterizing it first if needed.
+     *
+     * @param g The graphics context to draw on.
+     * @param topLeftCorner The on-screen position of the chunk's top-left corner.
+     * @param dimensions Ignored; bands are always drawn at their natural size.
+     * @param degreesCounterClockwise Ignored; chunks are never rotated.
+     * @param isFlippedHorizontally Ignored; chunks are never flipped.
+     * @param isFlippedVertically Ignored; chunks are never flipped.
+     * @param opaqueness Ignored; chunks are always opaque.
+     */
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        int left = Math.round(topLeftCorner.x());
+        int top = Math.round(topLeftCorner.y());
+        for (int band = chunk.getMinBand(); band <= chunk.getMaxBand(); band++) {
+            if (images[band] == null) {
+                images[band] = chunk.isCoarse() ? bakeCoarse(band) : bake(band);
+            }
+            g.drawImage(images[band], left, top + band * TerrainChunk.BAND_ROWS * Block.SIZE,
+                    TerrainChunk.WIDTH, bandHeight(band), null);
+        }
+    }
+
+    /**
+     * Gets the height of a band's image at full resolution: its rows, plus the spread
+     * between the chunk's highest and lowest surfaces.
+     *
+     * @param band The band index.
+     * @return The height of the band, in pixels.
+     */
+    private int bandHeight(int band) {
+        return chunk.getBottomSurface() - chunk.getTop() + chunk.getBandRows(band) * Block.SIZE;
+    }
+
+    /**
+     * Rasterizes all the cells of a band into a new image.
+     *
+     * @param band The band index.
+     * @return The rasterized band.
+     */
+    private BufferedImage bake(int band) {
+        int width = TerrainChunk.WIDTH;
+        int height = bandHeight(band);
+        BufferedImage baked = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        byte[] pixels = ((DataBufferByte) baked.getRaster().getDataBuffer()).getData();
+        int firstRow = band * TerrainChunk.BAND_ROWS;
+        for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+            int columnTop = chunk.getHeight(column) - chunk.getTop();
+            for (int row = 0; row < chunk.getBandRows(band); row++) {
+                byte index = (byte) (chunk.getTile(column, firstRow + row) + 1);
+                int cellTop = columnTop + row * Block.SIZE;
+                for (int y = cellTop; y < Math.min(cellTop + Block.SIZE, height); y++) {
+                    int offset = y * width + column * Block.SIZE;
+                    for (int x = 0; x < Block.SIZE; x++) {
+                        pixels[offset + x] = index;
+                    }
+                }
+            }
+        }
+        return baked;
+    }
+
+    /**
+     * Rasterizes a band as one merged rectangle per column, at a reduced resolution.
+     *
+     * @param band The band index.
+     * @return The rasterized band.
+     */
+    private BufferedImage bakeCoarse(int band) {
+        int width = TerrainChunk.WIDTH / COARSE_SCALE;
+        int height = (int) Math.ceil((float) bandHeight(band) / COARSE_SCALE);
+        BufferedImage baked = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        byte[] pixels = ((DataBufferByte) baked.getRaster().getDataBuffer()).getData();
+        byte mergedIndex = (byte) (colorModel.getMapSize() - 1);
+        int columnWidth = Block.SIZE / COARSE_SCALE;
+        for (int column = 0; column < TerrainChunk.COLUMNS; column++) {
+            int columnTop = (chunk.getHeight(column) - chunk.getTop()) / COARSE_SCALE;
+            int columnBottom = Math.min(columnTop + chunk.getBandRows(band) * Block.SIZE / COARSE_SCALE,
+                    height);
+            for (int y = columnTop; y < columnBottom; y++) {
+                int offset = y * width + column * columnWidth;
+                for (int x = 0; x < columnWidth; x++) {
+                    pixels[offset + x] = mergedIndex;
+                }
+            }
+        }
+        return baked;
+    }
+}
@@ -0,0 +1,63 @@
+package pepse.world;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds a run of terrain chunks on a fork/join pool, splitting it in halves until each part
+ * is a single batch of columns. Every chunk is written to its own slot of the output, so the
+ * parts never touch the same data.
+ */
+class TerrainChunkTask extends RecursiveAction {
+
+    /**
+     * The number of columns below which a run of chunks is built on a single thread.
+     */
+    static final int BATCH_COLUMNS = 32;
+
+    private static final long serialVersionUID = 1L;
+
+    private final Terrain terrain;
+    private final int[] indices;
+    private final IntBuffer[] cachedHeights;
+    private final TerrainChunk[] chunks;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a TerrainChunkTask instance.
+     *
+     * @param terrain The terrain the chunks belong to.
+     * @param indices The indices of the chunks, one per slot of the output.
+     * @param cachedHeights The cached surface heights of every chunk, or null where they
+     *                      must be generated.
+     * @param chunks The output, one slot per chunk.
+     * @param from The first slot to fill.
+     * @param to The slot after the last one to fill.
+     */
+    TerrainChunkTask(Terrain terrain, int[] indices, IntBuffer[] cachedHeights, TerrainChunk[] chunks,
+                     int from, int to) {
+        this.terrain = terrain;
+        this.indices = indices;
+        this.cachedHeights = cachedHeights;
+        this.chunks = chunks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Builds the chunks of the run, or splits it if it is wider than a batch.
+     */
+    @Override
+    protected void compute() {
+        if ((to - from) * TerrainChunk.COLUMNS <= BATCH_COLUMNS) {
+            for (int i = from; i < to; i++) {
+                chunks[i] = terrain.buildChunk(indices[i], cachedHeights[i]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new TerrainChunkTask(terrain, indices, cachedHeights, chunks, from, middle),
+                new TerrainChunkTask(terrain, indices, cachedHeights, chunks, middle, to));
+    }
+}
@@ -0,0 +1,239 @@
+package pepse.world.cache;
+
+import pepse.world.TerrainChunk;
+import pepse.world.trees.TreeLayout;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent, per-seed cache of generated world data: the surface heights of terrain chunks
+ * and the layouts of trees. Data that is already on disk is read straight from a memory-mapped
+ * view of the file instead of being generated again; data generated in this session is
+ * appended to the file in batches, and read back in the next session.
+ * The file starts with a header holding the format version, the seed and a fingerprint of the
+ * generation parameters. A file whose header does not match is discarded and started over.
+ */
+public class WorldCache {
+
+    /**
+     * The version of the file format and of the generation code whose output it stores.
+     * It must be bumped whenever either changes, so that stale caches are discarded.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(WorldCache.class.getName());
+    private static final int MAGIC = 0x50455053;
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES;
+    private static final byte CHUNK_RECORD = 1;
+    private static final byte TREE_RECORD = 2;
+    private static final int CHUNK_RECORD_BYTES = 1 + Integer.BYTES * (1 + TerrainChunk.COLUMNS);
+    private static final int TREE_RECORD_BYTES = 1 + Integer.BYTES * 4 + Float.BYTES;
+    private static final int FLUSH_THRESHOLD = 64;
+    private static final String FILE_PREFIX = "world-";
+    private static final String FILE_SUFFIX = ".cache";
+    private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    /** Offsets of the records in the mapped file, keyed by chunk index and tree x-coordinate */
+    private final HashMap<Integer, Integer> chunkOffsets = new HashMap<>();
+    private final HashMap<Integer, Integer> treeOffsets = new HashMap<>();
+    /** Records generated in this session, which are not part of the mapped view */
+    private final HashMap<Integer, int[]> appendedChunks = new HashMap<>();
+    private final HashMap<Integer, TreeLayout> appendedTrees = new HashMap<>();
+    private final ByteBuffer pending = ByteBuffer.allocate(
+            FLUSH_THRESHOLD * Math.max(CHUNK_RECORD_BYTES, TREE_RECORD_BYTES));
+    private long appendPosition;
+
+    /**
+     * Constructs a WorldCache instance over an open cache file, and indexes its records.
+     *
+     * @param channel The channel of the cache file, whose header is already valid.
+     * @throws IOException If the file cannot be read or mapped.
+     */
+    private WorldCache(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        int end = indexRecords(size);
+        // Anything after the last whole record was torn by an interrupted write. It is cut off
+        // before the file is mapped, as a mapped file must not shrink under its mapping.
+        if (end < size) {
+            channel.truncate(end);
+        }
+        appendPosition = end;
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+    }
+
+    /**
+     * Reads through the records of the cache file and notes the offset of each of them.
+     *
+     * @param size The size of the file.
+     * @return The offset just past the last whole record.
+     * @throws IOException If the file cannot be read.
+     */
+    private int indexRecords(long size) throws IOException {
+        // The stream is left open, since closing it would close the channel.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(HEADER_BYTES)), SCAN_BUFFER_BYTES));
+        int offset = HEADER_BYTES;
+        while (offset < size) {
+            byte type = in.readByte();
+            if (type == CHUNK_RECORD && offset + CHUNK_RECORD_BYTES <= size) {
+                chunkOffsets.put(in.readInt(), offset + 1 + Integer.BYTES);
+                in.skipNBytes(CHUNK_RECORD_BYTES - 1 - Integer.BYTES);
+                offset += CHUNK_RECORD_BYTES;
+            } else if (type == TREE_RECORD && offset + TREE_RECORD_BYTES <= size) {
+                treeOffsets.put(in.readInt(), offset + 1);
+                in.skipNBytes(TREE_RECORD_BYTES - 1 - Integer.BYTES);
+                offset += TREE_RECORD_BYTES;
+            } else {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Opens the cache of a seed, creating it or starting it over if its header does not match.
+     * Failing to open the cache is not fatal: the world is then simply generated.
+     *
+     * @param directory The directory that holds the cache files.
+     * @param seed The seed of the world.
+     * @param fingerprint A fingerprint of the generation parameters of the world.
+     * @return The cache, or null if it could not be opened.
+     */
+    public static WorldCache open(Path directory, int seed, long fingerprint) {
+        try {
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve(FILE_PREFIX + seed + FILE_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer expected = ByteBuffer.allocate(HEADER_BYTES);
+            expected.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(seed).putLong(fingerprint).flip();
+            ByteBuffer actual = ByteBuffer.allocate(HEADER_BYTES);
+            while (actual.hasRemaining() && channel.read(actual, actual.position()) >= 0) {
+                // Keep reading until the header is complete or the file ends.
+            }
+            actual.flip();
+            if (!actual.equals(expected)) {
+                channel.truncate(0);
+                channel.write(expected, 0);
+            }
+            return new WorldCache(channel);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "World cache unavailable, generating without it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the cached surface heights of a terrain chunk. Heights that were on disk when the
+     * cache was opened are returned as a view of the mapped file, without copying.
+     *
+     * @param index The index of the chunk.
+     * @return The heights of the chunk's columns, or null if the chunk is not cached.
+     */
+    public IntBuffer getChunkHeights(int index) {
+        Integer offset = chunkOffsets.get(index);
+        if (offset != null) {
+            return mapped.slice(offset, TerrainChunk.COLUMNS * Integer.BYTES).asIntBuffer();
+        }
+        int[] heights = appendedChunks.get(index);
+        return heights == null ? null : IntBuffer.wrap(heights);
+    }
+
+    /**
+     * Records the surface heights of a newly generated terrain chunk.
+     *
+     * @param index The index of the chunk.
+     * @param heights The heights of the chunk's columns.
+     */
+    public synchronized void putChunkHeights(int index, int[] heights) {
+        if (chunkOffsets.containsKey(index) || appendedChunks.put(index, heights) != null) {
+            return;
+        }
+        pending.put(CHUNK_RECORD).putInt(index);
+        for (int height : heights) {
+            pending.putInt(height);
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Gets the cached layout of a tree.
+     *
+     * @param x The x-coordinate of the tree.
+     * @return The layout of the tree, or null if the tree is not cached.
+     */
+    public TreeLayout getTreeLayout(int x) {
+        Integer offset = treeOffsets.get(x);
+        if (offset == null) {
+            return appendedTrees.get(x);
+        }
+        return new TreeLayout(mapped.getInt(offset), mapped.getFloat(offset + Integer.BYTES),
+                mapped.getInt(offset + Integer.BYTES * 2), mapped.getInt(offset + Integer.BYTES * 3),
+                mapped.getInt(offset + Integer.BYTES * 4));
+    }
+
+    /**
+     * Records the layout of a newly generated tree.
+     *
+     * @param layout The layout of the tree.
+     */
+    public synchronized void putTreeLayout(TreeLayout layout) {
+        if (treeOffsets.containsKey(layout.getX()) || appendedTrees.put(layout.getX(), layout) != null) {
+            return;
+        }
+        pending.put(TREE_RECORD).putInt(layout.getX()).putFloat(layout.getGroundHeight())
+                .putInt(layout.getHeight()).putInt(layout.getLeafMask()).putInt(layout.getFruitMask());
+        flushIfFull();
+    }
+
+    /**
+     * Appends the records that were generated since the last flush to the file.
+     */
+    public synchronized void flush() {
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) {
+                appendPosition += channel.write(pending, appendPosition);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to append to the world cache", e);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Flushes the remaining records and closes the file.
+     */
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close the world cache", e);
+        }
+    }
+
+    /**
+     * Flushes the pending records once there is no room left for another one.
+     */
+    private void flushIfFull() {
+        if (pending.remaining() < Math.max(CHUNK_RECORD_BYTES, TREE_RECORD_BYTES)) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package pepse.world.culling;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Keeps static objects that are outside every view out of the game, so they are neither
+ * updated nor rendered.
+ * Objects are indexed in fixed-width buckets by the x-coordinate of their center. Only the
+ * buckets that overlap a view, plus a margin and half the widest object, are in the game,
+ * and moving a view only touches the buckets that enter or leave it. There can be several
+ * views, such as the camera and the surroundings of every avatar; each bucket counts the
+ * views that overlap it, and leaves the game once none does.
+ */
+public class ViewportCuller {
+
+    private final GameObjectCollection gameObjects;
+    private final int bucketWidth;
+    private final int margin;
+    private final HashMap<Integer, List<Entry>> buckets = new HashMap<>();
+    private final IdentityHashMap<GameObject, Entry> entries = new IdentityHashMap<>();
+    /** The number of views that overlap each bucket that is in the game */
+    private final HashMap<Integer, Integer> bucketViews = new HashMap<>();
+    /** The first and last bucket of every view */
+    private final HashMap<Integer, int[]> viewBuckets = new HashMap<>();
+    private int maxHalfWidth = 0;
+
+    /**
+     * Constructs a ViewportCuller instance.
+     *
+     * @param gameObjects The collection that visible objects are added to.
+     * @param bucketWidth The width of a single bucket of the index, in pixels.
+     * @param margin How far outside the view objects are still kept in the game, in pixels.
+     */
+    public ViewportCuller(GameObjectCollection gameObjects, int bucketWidth, int margin) {
+        this.gameObjects = gameObjects;
+        this.bucketWidth = bucketWidth;
+        this.margin = margin;
+    }
+
+    /**
+     * Adds a static object to the index, and to the game if it is in view.
+     *
+     * @param gameObject The object to add.
+     * @param layer The layer the object belongs to.
+     */
+    public void addGameObject(GameObject gameObject, int layer) {
+        int bucket = Math.floorDiv((int) gameObject.getCenter().x(), bucketWidth);
+        maxHalfWidth = Math.max(maxHalfWidth, (int) Math.ceil(gameObject.getDimensions().x() / 2));
+        Entry entry = new Entry(gameObject, layer, bucket);
+        entries.put(gameObject, entry);
+        buckets.computeIfAbsent(bucket, key -> new ArrayList<>()).add(entry);
+        if (isVisible(bucket)) {
+            gameObjects.addGameObject(gameObject, layer);
+        }
+    }
+
+    /**
+     * Removes an object from the index, and from the game if it is in view.
+     *
+     * @param gameObject The object to remove.
+     * @param layer The layer the object belongs to.
+     */
+    public void removeGameObject(GameObject gameObject, int layer) {
+        Entry entry = entries.remove(gameObject);
+        if (entry == null) {
+            return;
+        }
+        List<Entry> bucketEntries = buckets.get(entry.bucket);
+        bucketEntries.remove(entry);
+        if (bucketEntries.isEmpty()) {
+            buckets.remove(entry.bucket);
+        }
+        if (isVisible(entry.bucket)) {
+            gameObjects.removeGameObject(gameObject, layer);
+        }
+    }
+
+    /**
+     * Moves the index along with the origin of the world, after every indexed object was moved
+     * the other way. Nothing enters or leaves the game.
+     *
+     * @param shift The distance the origin moved by, in pixels; a whole number of buckets.
+     * @throws IllegalArgumentException If the distance is not a whole number of buckets.
+     */
+    public void rebase(int shift) {
+        if (shift % bucketWidth != 0) {
+            throw new IllegalArgumentException("Cannot move the origin by part of a bucket: " + shift);
+        }
+        int bucketShift = shift / bucketWidth;
+        List<Entry> movedEntries = new ArrayList<>(entries.values());
+        buckets.clear();
+        for (Entry entry : movedEntries) {
+            Entry moved = new Entry(entry.gameObject, entry.layer, entry.bucket - bucketShift);
+            entries.put(entry.gameObject, moved);
+            buckets.computeIfAbsent(moved.bucket, key -> new ArrayList<>()).add(moved);
+        }
+        HashMap<Integer, Integer> movedViews = new HashMap<>(bucketViews);
+        bucketViews.clear();
+        movedViews.forEach((bucket, views) -> bucketViews.put(bucket - bucketShift, views));
+        for (int[] range : viewBuckets.values()) {
+            range[0] -= bucketShift;
+            range[1] -= bucketShift;
+        }
+    }
+
+    /**
+     * Moves the main view, adding the objects that come into it to the game and removing
+     * the ones that leave every view.
+     *
+     * @param viewMinX The minimum x-coordinate of the view, in world coordinates.
+     * @param viewMaxX The maximum x-coordinate of the view, in world coordinates.
+     */
+    public void update(float viewMinX, float viewMaxX) {
+        update(0, viewMinX, viewMaxX);
+    }
+
+    /**
+     * Moves a view, adding the objects that come into it to the game and removing
+     * the ones that leave every view.
+     *
+     * @param view The identifier of the view.
+     * @param viewMinX The minimum x-coordinate of the view, in world coordinates.
+     * @param viewMaxX The maximum x-coordinate of the view, in world coordinates.
+     */
+    public void update(int view, float viewMinX, float viewMaxX) {
+        int reach = margin + maxHalfWidth;
+        int newMinBucket = Math.floorDiv((int) Math.floor(viewMinX) - reach, bucketWidth);
+        int newMaxBucket = Math.floorDiv((int) Math.ceil(viewMaxX) + reach, bucketWidth);
+        int[] old = viewBuckets.getOrDefault(view, new int[]{0, -1});
+        if (newMinBucket == old[0] && newMaxBucket == old[1]) {
+            return;
+        }
+        for (int bucket = newMinBucket; bucket <= newMaxBucket; bucket++) {
+            if ((bucket < old[0] || bucket > old[1]) && bucketViews.merge(bucket, 1, Integer::sum) == 1) {
+                for (Entry entry : buckets.getOrDefault(bucket, List.of())) {
+                    gameObjects.addGameObject(entry.gameObject, entry.layer);
+                }
+            }
+        }
+        for (int bucket = old[0]; bucket <= old[1]; bucket++) {
+            if (bucket < newMinBucket || bucket > newMaxBucket) {
+                releaseBucket(bucket);
+            }
+        }
+        viewBuckets.put(view, new int[]{newMinBucket, newMaxBucket});
+    }
+
+    /**
+     * Removes a view, removing the objects that no other view overlaps from the game.
+     *
+     * @param view The identifier of the view.
+     */
+    public void removeView(int view) {
+        int[] old = viewBuckets.remove(view);
+        if (old == null) {
+            return;
+        }
+        for (int bucket = old[0]; bucket <= old[1]; bucket++) {
+            releaseBucket(bucket);
+        }
+    }
+
+    /**
+     * Gets the number of indexed objects, whether they are in view or not.
+     *
+     * @return The number of indexed objects.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checks whether a bucket is currently in the game.
+     *
+     * @param bucket The bucket index.
+     * @return True if the bucket is in some view, false otherwise.
+     */
+    private boolean isVisible(int bucket) {
+        return bucketViews.containsKey(bucket);
+    }
+
+    /**
+     * Drops a view's reference to a bucket, removing its objects from the game if no other
+     * view overlaps it.
+     *
+     * @param bucket The bucket index.
+     */
+    private void releaseBucket(int bucket) {
+        if (bucketViews.merge(bucket, -1, Integer::sum) == 0) {
+            bucketViews.remove(bucket);
+            for (Entry entry : buckets.getOrDefault(bucket, List.of())) {
+                gameObjects.removeGameObject(entry.gameObject, entry.layer);
+            }
+        }
+    }
+
+    /**
+     * An indexed object, with the layer and bucket it was added to.
+     */
+    private static class Entry {
+        private final GameObject gameObject;
+        private final int layer;
+        private final int bucket;
+
+        /**
+         * Constructs an Entry instance.
+         *
+         * @param gameObject The indexed object.
+         * @param layer The layer the object belongs to.
+         * @param bucket The bucket the object is indexed in.
+         */
+        private Entry(GameObject gameObject, int layer, int bucket) {
+            this.gameObject = gameObject;
+            this.layer = layer;
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package pepse.world.persistence;
+
+import pepse.world.Block;
+import pepse.world.TerrainChunk;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.FruitListener;
+import pepse.world.trees.TreeLayout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists which fruit of the world has been eaten, so a session can be resumed and an
+ * evicted region rebuilt without keeping its fruit objects alive.
+ * Eaten fruit is kept as one bitset per terrain chunk, a bit per crown cell of every tree
+ * column of the chunk. Changed bitsets are appended to a log file in batches, each batch
+ * followed by a single fsync; when the log grows well beyond its live data it is compacted
+ * into a fresh file holding only the latest bitset of every chunk.
+ * All state is guarded by the store's lock, since the final flush runs on a shutdown hook
+ * while the game thread may still be recording fruit.
+ */
+public class EatenFruitStore implements FruitListener {
+
+    private static final Logger LOGGER = Logger.getLogger(EatenFruitStore.class.getName());
+    private static final int MAGIC = 0x50455046;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 3;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    private static final int CELLS_PER_TREE = TreeLayout.CROWN_SIZE * TreeLayout.CROWN_SIZE;
+    private static final float FLUSH_INTERVAL_SECONDS = 5f;
+    private static final int COMPACTION_RATIO = 4;
+    private static final long COMPACTION_MIN_BYTES = 64 * 1024;
+    private static final String FILE_PREFIX = "fruit-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String COMPACTION_SUFFIX = ".compact";
+
+    private final Path path;
+    private final int seed;
+    private final HashMap<Integer, BitSet> eatenByChunk = new HashMap<>();
+    private final HashSet<Integer> dirtyChunks = new HashSet<>();
+    private FileChannel channel;
+    private long appendPosition;
+    private float secondsSinceFlush;
+
+    /**
+     * Constructs an EatenFruitStore instance over an open log file, and replays it.
+     *
+     * @param path The path of the log file.
+     * @param seed The seed of the world.
+     * @param channel The channel of the log file, whose header is already valid.
+     * @throws IOException If the log cannot be read.
+     */
+    private EatenFruitStore(Path path, int seed, FileChannel channel) throws IOException {
+        this.path = path;
+        this.seed = seed;
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer log = ByteBuffer.allocate((int) size);
+        while (log.hasRemaining() && channel.read(log, log.position()) >= 0) {
+            // Keep reading until the whole log is in memory.
+        }
+        log.flip().position(HEADER_BYTES);
+        appendPosition = HEADER_BYTES;
+        while (log.remaining() >= RECORD_HEADER_BYTES) {
+            int chunk = log.getInt();
+            int words = log.getShort();
+            if (words < 0 || log.remaining() < words * Long.BYTES) {
+                break;
+            }
+            long[] bits = new long[words];
+            log.asLongBuffer().get(bits);
+            log.position(log.position() + words * Long.BYTES);
+            // Later records supersede earlier ones.
+            eatenByChunk.put(chunk, BitSet.valueOf(bits));
+            appendPosition = log.position();
+        }
+        // Anything after the last whole record was torn by an interrupted write.
+        if (appendPosition < size) {
+            channel.truncate(appendPosition);
+        }
+        eatenByChunk.values().removeIf(BitSet::isEmpty);
+    }
+
+    /**
+     * Opens the eaten fruit log of a seed, creating it if it does not exist yet.
+     * Failing to open it is not fatal: eaten fruit is then simply not saved.
+     *
+     * @param directory The directory that holds the save files.
+     * @param seed The seed of the world.
+     * @return The store, or null if it could not be opened.
+     */
+    public static EatenFruitStore open(Path directory, int seed) {
+        try {
+            Files.createDirectories(directory);
+            Path path = directory.resolve(FILE_PREFIX + seed + FILE_SUFFIX);
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer expected = header(seed);
+            ByteBuffer actual = ByteBuffer.allocate(HEADER_BYTES);
+            while (actual.hasRemaining() && channel.read(actual, actual.position()) >= 0) {
+                // Keep reading until the header is complete or the file ends.
+            }
+            actual.flip();
+            if (!actual.equals(expected)) {
+                channel.truncate(0);
+                channel.write(expected, 0);
+            }
+            return new EatenFruitStore(path, seed, channel);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Eaten fruit will not be saved", e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether a fruit was eaten and has not grown back yet.
+     *
+     * @param fruit The fruit to check.
+     * @return True if the fruit is eaten, false otherwise.
+     */
+    public synchronized boolean isEaten(Fruit fruit) {
+        BitSet eaten = eatenByChunk.get(chunkOf(fruit));
+        return eaten != null && eaten.get(bitOf(fruit));
+    }
+
+    /**
+     * Gets the number of fruits that are recorded as eaten, in the whole world.
+     *
+     * @return The number of eaten fruits.
+     */
+    public synchronized int getEatenCount() {
+        int count = 0;
+        for (BitSet eaten : eatenByChunk.values()) {
+            count += eaten.cardinality();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void onFruitEaten(Fruit fruit) {
+        int chunk = chunkOf(fruit);
+        eatenByChunk.computeIfAbsent(chunk, key -> new BitSet()).set(bitOf(fruit));
+        dirtyChunks.add(chunk);
+    }
+
+    @Override
+    public synchronized void onFruitRegrown(Fruit fruit) {
+        int chunk = chunkOf(fruit);
+        BitSet eaten = eatenByChunk.get(chunk);
+        if (eaten != null) {
+            eaten.clear(bitOf(fruit));
+            if (eaten.isEmpty()) {
+                eatenByChunk.remove(chunk);
+            }
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Flushes the changed bitsets once the flush interval has passed since the last flush.
+     *
+     * @param deltaTime Time elapsed since the last frame, in seconds.
+     */
+    public synchronized void update(float deltaTime) {
+        secondsSinceFlush += deltaTime;
+        if (secondsSinceFlush >= FLUSH_INTERVAL_SECONDS) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends the latest bitset of every changed chunk to the log and syncs it to disk,
+     * compacting the log first if it has grown too large.
+     */
+    public synchronized void flush() {
+        secondsSinceFlush = 0;
+        if (dirtyChunks.isEmpty()) {
+            return;
+        }
+        try {
+            if (appendPosition > COMPACTION_MIN_BYTES && appendPosition > COMPACTION_RATIO * liveBytes()) {
+                compact();
+            } else {
+                ByteBuffer records = ByteBuffer.allocate(recordsBytes(dirtyChunks));
+                for (int chunk : dirtyChunks) {
+                    putRecord(records, chunk);
+                }
+                records.flip();
+                while (records.hasRemaining()) {
+                    appendPosition += channel.write(records, appendPosition);
+                }
+                channel.force(false);
+            }
+            dirtyChunks.clear();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save eaten fruit", e);
+        }
+    }
+
+    /**
+     * Flushes the remaining changes and closes the log.
+     */
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close the eaten fruit log", e);
+        }
+    }
+
+    /**
+     * Rewrites the log with only the latest bitset of every chunk that has eaten fruit, and
+     * atomically replaces the old log with it.
+     *
+     * @throws IOException If the compacted log cannot be written.
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + COMPACTION_SUFFIX);
+        ByteBuffer records = ByteBuffer.allocate(HEADER_BYTES + recordsBytes(eatenByChunk.keySet()));
+        records.put(header(seed));
+        for (int chunk : eatenByChunk.keySet()) {
+            putRecord(records, chunk);
+        }
+        records.flip();
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (records.hasRemaining()) {
+                out.write(records);
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        appendPosition = channel.size();
+    }
+
+    /**
+     * Gets the size the log would have if it held only the latest bitset of every chunk.
+     *
+     * @return The size of the live data, in bytes.
+     */
+    private long liveBytes() {
+        return HEADER_BYTES + recordsBytes(eatenByChunk.keySet());
+    }
+
+    /**
+     * Gets the size of the records of a set of chunks.
+     *
+     * @param chunks The indices of the chunks.
+     * @return The size of their records, in bytes.
+     */
+    private int recordsBytes(Iterable<Integer> chunks) {
+        int bytes = 0;
+        for (int chunk : chunks) {
+            BitSet eaten = eatenByChunk.get(chunk);
+            bytes += RECORD_HEADER_BYTES + (eaten == null ? 0 : eaten.toLongArray().length * Long.BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the record of a chunk: its index, the number of words of its bitset, and the words.
+     *
+     * @param records The buffer to write to.
+     * @param chunk The index of the chunk.
+     */
+    private void putRecord(ByteBuffer records, int chunk) {
+        BitSet eaten = eatenByChunk.get(chunk);
+        long[] words = eaten == null ? new long[0] : eaten.toLongArray();
+        records.putInt(chunk).putShort((short) words.length);
+        for (long word : words) {
+            records.putLong(word);
+        }
+    }
+
+    /**
+     * Builds the header of a log file.
+     *
+     * @param seed The seed of the world.
+     * @return The header, ready to be written.
+     */
+    private static ByteBuffer header(int seed) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(seed).flip();
+        return header;
+    }
+
+    /**
+     * Gets the terrain chunk whose bitset holds a fruit.
+     *
+     * @param fruit The fruit.
+     * @return The index of the chunk the fruit's tree stands on.
+     */
+    private static int chunkOf(Fruit fruit) {
+        return Math.floorDiv(fruit.getTreeX(), TerrainChunk.WIDTH);
+    }
+
+    /**
+     * Gets the bit of a fruit in its chunk's bitset: trees stand at least a block apart, so
+     * every block column of the chunk gets the bits of one crown.
+     *
+     * @param fruit The fruit.
+     * @return The index of the fruit's bit.
+     */
+    private static int bitOf(Fruit fruit) {
+        int column = Math.floorMod(fruit.getTreeX(), TerrainChunk.WIDTH) / Block.SIZE;
+        return column * CELLS_PER_TREE + fruit.getCell();
+    }
+}
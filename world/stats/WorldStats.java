@@ -0,0 +1,242 @@
+package pepse.world.stats;
+
+import pepse.world.Rain;
+import pepse.world.Terrain;
+import pepse.world.persistence.EatenFruitStore;
+import pepse.world.streaming.WorldStreamer;
+import pepse.world.trees.Flora;
+
+/**
+ * Live statistics of a running world, exposed as a JMX MBean.
+ * The game thread records every frame's phase timings and, once a second, samples the
+ * resident counts and the generation and eviction rates; a JMX console only ever reads that
+ * snapshot, so it never touches the world itself. The knobs written from the console are
+ * likewise only stored, and applied by the game thread on the next frame.
+ */
+public class WorldStats implements WorldStatsMBean {
+
+    /** The name the MBean is registered under */
+    public static final String OBJECT_NAME = "pepse:type=WorldStats";
+
+    private static final long SAMPLE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private final WorldStreamer worldStreamer;
+    private final Rain rain;
+    private final EatenFruitStore eatenFruitStore;
+    private volatile int residentChunks;
+    private volatile int residentBlocks;
+    private volatile int residentTrees;
+    private volatile int residentLeaves;
+    private volatile int residentFruits;
+    private volatile int rainDrops;
+    private volatile int rememberedEatenFruits;
+    private volatile int pendingGenerationTasks;
+    private volatile double chunksGeneratedPerSecond;
+    private volatile double chunksEvictedPerSecond;
+    private volatile double treesGeneratedPerSecond;
+    private volatile double treesEvictedPerSecond;
+    private volatile double lastSimulationMillis;
+    private volatile double lastStreamingMillis;
+    private volatile double lastCullingMillis;
+    private volatile double lastUpdateMillis;
+    private volatile int qualityLevel;
+    private volatile float viewDistance;
+    private volatile float generationBudgetMillis;
+    private long sampleNanos;
+    private long sampleChunksGenerated;
+    private long sampleChunksEvicted;
+    private long sampleTreesGenerated;
+    private long sampleTreesEvicted;
+
+    /**
+     * Constructs a WorldStats instance and takes the first sample.
+     *
+     * @param worldStreamer The streamer of the world.
+     * @param rain The rain of the world.
+     * @param eatenFruitStore The store eaten fruit is recorded to, or null if it is not saved.
+     * @param viewDistance The initial view distance, in pixels.
+     * @param generationBudgetMillis The initial generation budget, in milliseconds.
+     */
+    public WorldStats(WorldStreamer worldStreamer, Rain rain, EatenFruitStore eatenFruitStore,
+                      float viewDistance, float generationBudgetMillis) {
+        this.worldStreamer = worldStreamer;
+        this.rain = rain;
+        this.eatenFruitStore = eatenFruitStore;
+        this.viewDistance = viewDistance;
+        this.generationBudgetMillis = generationBudgetMillis;
+        sample(System.nanoTime());
+    }
+
+    /**
+     * Records the phase timings of a frame, and samples the world once a second has passed
+     * since the last sample. Called by the game thread at the end of every frame.
+     *
+     * @param simulationNanos The time spent stepping the game objects, in nanoseconds.
+     * @param streamingNanos The time spent streaming the world, in nanoseconds.
+     * @param cullingNanos The time spent culling, in nanoseconds.
+     * @param updateNanos The time the whole update took, in nanoseconds.
+     */
+    public void recordFrame(long simulationNanos, long streamingNanos, long cullingNanos, long updateNanos) {
+        lastSimulationMillis = simulationNanos / NANOS_IN_MILLI;
+        lastStreamingMillis = streamingNanos / NANOS_IN_MILLI;
+        lastCullingMillis = cullingNanos / NANOS_IN_MILLI;
+        lastUpdateMillis = updateNanos / NANOS_IN_MILLI;
+        long now = System.nanoTime();
+        if (now - sampleNanos >= SAMPLE_INTERVAL_NANOS) {
+            sample(now);
+        }
+    }
+
+    /**
+     * Records the level the adaptive quality has moved to.
+     *
+     * @param qualityLevel The quality level.
+     */
+    public void recordQualityLevel(int qualityLevel) {
+        this.qualityLevel = qualityLevel;
+    }
+
+    /**
+     * Takes a snapshot of the resident counts, and of the rates since the last snapshot.
+     *
+     * @param now The current time, in nanoseconds.
+     */
+    private void sample(long now) {
+        Terrain terrain = worldStreamer.getTerrain();
+        Flora flora = worldStreamer.getFlora();
+        residentChunks = terrain.getChunkCount();
+        residentBlocks = terrain.getBlockCount();
+        residentTrees = flora.getTreeCount();
+        residentLeaves = flora.getLeafCount();
+        residentFruits = flora.getFruitCount();
+        rainDrops = rain.getDropCount();
+        rememberedEatenFruits = eatenFruitStore == null ? 0 : eatenFruitStore.getEatenCount();
+        pendingGenerationTasks = worldStreamer.getPendingCount();
+        double seconds = (now - sampleNanos) / NANOS_IN_SECOND;
+        if (sampleNanos != 0) {
+            chunksGeneratedPerSecond = (worldStreamer.getChunksGenerated() - sampleChunksGenerated) / seconds;
+            chunksEvictedPerSecond = (worldStreamer.getChunksEvicted() - sampleChunksEvicted) / seconds;
+            treesGeneratedPerSecond = (worldStreamer.getTreesGenerated() - sampleTreesGenerated) / seconds;
+            treesEvictedPerSecond = (worldStreamer.getTreesEvicted() - sampleTreesEvicted) / seconds;
+        }
+        sampleNanos = now;
+        sampleChunksGenerated = worldStreamer.getChunksGenerated();
+        sampleChunksEvicted = worldStreamer.getChunksEvicted();
+        sampleTreesGenerated = worldStreamer.getTreesGenerated();
+        sampleTreesEvicted = worldStreamer.getTreesEvicted();
+    }
+
+    @Override
+    public int getResidentChunks() {
+        return residentChunks;
+    }
+
+    @Override
+    public int getResidentBlocks() {
+        return residentBlocks;
+    }
+
+    @Override
+    public int getResidentTrees() {
+        return residentTrees;
+    }
+
+    @Override
+    public int getResidentLeaves() {
+        return residentLeaves;
+    }
+
+    @Override
+    public int getResidentFruits() {
+        return residentFruits;
+    }
+
+    @Override
+    public int getRainDrops() {
+        return rainDrops;
+    }
+
+    @Override
+    public int getRememberedEatenFruits() {
+        return rememberedEatenFruits;
+    }
+
+    @Override
+    public int getPendingGenerationTasks() {
+        return pendingGenerationTasks;
+    }
+
+    @Override
+    public double getChunksGeneratedPerSecond() {
+        return chunksGeneratedPerSecond;
+    }
+
+    @Override
+    public double getChunksEvictedPerSecond() {
+        return chunksEvictedPerSecond;
+    }
+
+    @Override
+    public double getTreesGeneratedPerSecond() {
+        return treesGeneratedPerSecond;
+    }
+
+    @Override
+    public double getTreesEvictedPerSecond() {
+        return treesEvictedPerSecond;
+    }
+
+    @Override
+    public double getLastSimulationMillis() {
+        return lastSimulationMillis;
+    }
+
+    @Override
+    public double getLastStreamingMillis() {
+        return lastStreamingMillis;
+    }
+
+    @Override
+    public double getLastCullingMillis() {
+        return lastCullingMillis;
+    }
+
+    @Override
+    public double getLastUpdateMillis() {
+        return lastUpdateMillis;
+    }
+
+    @Override
+    public int getQualityLevel() {
+        return qualityLevel;
+    }
+
+    @Override
+    public float getViewDistance() {
+        return viewDistance;
+    }
+
+    @Override
+    public void setViewDistance(float viewDistance) {
+        if (!(viewDistance > 0)) {
+            throw new IllegalArgumentException("The view distance must be positive: " + viewDistance);
+        }
+        this.viewDistance = viewDistance;
+    }
+
+    @Override
+    public float getGenerationBudgetMillis() {
+        return generationBudgetMillis;
+    }
+
+    @Override
+    public void setGenerationBudgetMillis(float generationBudgetMillis) {
+        if (!(generationBudgetMillis > 0)) {
+            throw new IllegalArgumentException("The generation budget must be positive: "
+                    + generationBudgetMillis);
+        }
+        this.generationBudgetMillis = generationBudgetMillis;
+    }
+}
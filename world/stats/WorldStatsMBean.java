@@ -0,0 +1,160 @@
+package pepse.world.stats;
+
+/**
+ * The management interface of {@link WorldStats}: live statistics of a running world, and the
+ * knobs it can be tuned with from a JMX console.
+ * The counts and rates are sampled once a second; the timings are those of the last frame.
+ */
+public interface WorldStatsMBean {
+
+    /**
+     * Gets the number of resident terrain chunks.
+     *
+     * @return The number of chunks.
+     */
+    int getResidentChunks();
+
+    /**
+     * Gets the number of materialized terrain collision blocks.
+     *
+     * @return The number of blocks.
+     */
+    int getResidentBlocks();
+
+    /**
+     * Gets the number of resident trees.
+     *
+     * @return The number of trees.
+     */
+    int getResidentTrees();
+
+    /**
+     * Gets the number of leaves on the resident trees.
+     *
+     * @return The number of leaves.
+     */
+    int getResidentLeaves();
+
+    /**
+     * Gets the number of fruits on the resident trees.
+     *
+     * @return The number of fruits.
+     */
+    int getResidentFruits();
+
+    /**
+     * Gets the number of rain drops in the game.
+     *
+     * @return The number of rain drops.
+     */
+    int getRainDrops();
+
+    /**
+     * Gets the number of fruits remembered as eaten, which is all the world keeps of the
+     * trees it has evicted.
+     *
+     * @return The number of eaten fruits, or 0 if eaten fruit is not saved.
+     */
+    int getRememberedEatenFruits();
+
+    /**
+     * Gets the number of queued generation tasks.
+     *
+     * @return The number of pending tasks.
+     */
+    int getPendingGenerationTasks();
+
+    /**
+     * Gets the rate at which terrain chunks are generated.
+     *
+     * @return The number of chunks generated per second.
+     */
+    double getChunksGeneratedPerSecond();
+
+    /**
+     * Gets the rate at which terrain chunks are evicted.
+     *
+     * @return The number of chunks evicted per second.
+     */
+    double getChunksEvictedPerSecond();
+
+    /**
+     * Gets the rate at which trees are generated.
+     *
+     * @return The number of trees generated per second.
+     */
+    double getTreesGeneratedPerSecond();
+
+    /**
+     * Gets the rate at which trees are evicted.
+     *
+     * @return The number of trees evicted per second.
+     */
+    double getTreesEvictedPerSecond();
+
+    /**
+     * Gets the time the last frame spent stepping the game objects.
+     *
+     * @return The simulation time, in milliseconds.
+     */
+    double getLastSimulationMillis();
+
+    /**
+     * Gets the time the last frame spent streaming the world.
+     *
+     * @return The streaming time, in milliseconds.
+     */
+    double getLastStreamingMillis();
+
+    /**
+     * Gets the time the last frame spent culling the objects outside the view.
+     *
+     * @return The culling time, in milliseconds.
+     */
+    double getLastCullingMillis();
+
+    /**
+     * Gets the time the last frame's update took in all.
+     *
+     * @return The update time, in milliseconds.
+     */
+    double getLastUpdateMillis();
+
+    /**
+     * Gets the level the adaptive quality has set.
+     *
+     * @return The quality level, from 0 for full quality upwards.
+     */
+    int getQualityLevel();
+
+    /**
+     * Gets how far the loaded range reaches to either side of an avatar at full quality.
+     *
+     * @return The view distance, in pixels.
+     */
+    float getViewDistance();
+
+    /**
+     * Sets how far the loaded range reaches to either side of an avatar at full quality.
+     * Takes effect on the next frame.
+     *
+     * @param viewDistance The view distance, in pixels.
+     * @throws IllegalArgumentException If the view distance is not positive.
+     */
+    void setViewDistance(float viewDistance);
+
+    /**
+     * Gets the time world generation may take per frame.
+     *
+     * @return The generation budget, in milliseconds.
+     */
+    float getGenerationBudgetMillis();
+
+    /**
+     * Sets the time world generation may take per frame. Takes effect on the next frame.
+     *
+     * @param generationBudgetMillis The generation budget, in milliseconds.
+     * @throws IllegalArgumentException If the budget is not positive.
+     */
+    void setGenerationBudgetMillis(float generationBudgetMillis);
+}
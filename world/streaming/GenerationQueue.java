@@ -0,0 +1,241 @@
+package pepse.world.streaming;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A queue of pending world generation work, drained a bounded amount of time per frame.
+ * Every task is keyed by the x-coordinate it generates, and the tasks nearest to a
+ * focus point (usually an avatar) always run first.
+ * The queue can instead be drained a fixed number of tasks per frame, so that which parts of
+ * the world exist in every frame does not depend on how fast the machine is, as a replay
+ * requires.
+ */
+public class GenerationQueue {
+
+    private static final long NANOS_IN_MILLI = 1_000_000L;
+
+    private final TreeMap<Integer, ArrayDeque<Runnable>> tasks = new TreeMap<>();
+    private long budgetNanos;
+    private int taskBudget;
+    private int size;
+
+    /**
+     * Constructs a GenerationQueue instance.
+     *
+     * @param budgetMillis Time, in milliseconds, that a single call to {@link #process} may take.
+     */
+    public GenerationQueue(float budgetMillis) {
+        setBudgetMillis(budgetMillis);
+    }
+
+    /**
+     * Sets the time that a single call to {@link #process} may take.
+     *
+     * @param budgetMillis The per-frame budget, in milliseconds.
+     */
+    public void setBudgetMillis(float budgetMillis) {
+        this.budgetNanos = (long) (budgetMillis * NANOS_IN_MILLI);
+    }
+
+    /**
+     * Gets the time that a single call to {@link #process} may take.
+     *
+     * @return The per-frame budget, in milliseconds.
+     */
+    public float getBudgetMillis() {
+        return (float) budgetNanos / NANOS_IN_MILLI;
+    }
+
+    /**
+     * Sets the number of tasks a single call to {@link #process} runs, instead of the time it
+     * may take.
+     *
+     * @param taskBudget The number of tasks per call, or 0 to go by the time budget again.
+     */
+    public void setTaskBudget(int taskBudget) {
+        this.taskBudget = taskBudget;
+    }
+
+    /**
+     * Adds a task to the queue.
+     *
+     * @param x The x-coordinate that the task generates.
+     * @param task The generation work.
+     */
+    public void submit(int x, Runnable task) {
+        tasks.computeIfAbsent(x, key -> new ArrayDeque<>()).add(task);
+        size++;
+    }
+
+    /**
+     * Drops every pending task.
+     */
+    public void clear() {
+        tasks.clear();
+        size = 0;
+    }
+
+    /**
+     * Drops the pending tasks whose x-coordinate lies outside the specified range.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @param maxX The maximum x-coordinate of the range.
+     */
+    public void cancelOutOfRange(int minX, int maxX) {
+        Iterator<Map.Entry<Integer, ArrayDeque<Runnable>>> iterator = tasks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ArrayDeque<Runnable>> entry = iterator.next();
+            if (entry.getKey() < minX || entry.getKey() > maxX) {
+                size -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs pending tasks, nearest to any of the focus points first, until the budget is spent:
+     * the task budget if one is set, the time budget otherwise.
+     * At least one task runs on every call, so the queue always makes progress.
+     *
+     * @param focusXs The x-coordinates around which work is prioritized.
+     * @return The number of tasks that ran.
+     */
+    public int process(float... focusXs) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int ran = 0;
+        do {
+            Runnable task = pollNearest(focusXs);
+            if (task == null) {
+                break;
+            }
+            task.run();
+            ran++;
+        } while (taskBudget > 0 ? ran < taskBudget : System.nanoTime() < deadline);
+        return ran;
+    }
+
+    /**
+     * Runs every pending task, regardless of the budget.
+     *
+     * @param focusX The x-coordinate around which work is prioritized.
+     * @return The number of tasks that ran.
+     */
+    public int processAll(float focusX) {
+        int ran = 0;
+        Runnable task;
+        while ((task = pollNearest(new float[]{focusX})) != null) {
+            task.run();
+            ran++;
+        }
+        return ran;
+    }
+
+    /**
+     * Runs every pending task within a distance of the focus point, regardless of the budget,
+     * nearest first. Tasks further away stay queued.
+     *
+     * @param focusX The x-coordinate around which work is prioritized.
+     * @param radius The distance from the focus point within which tasks run.
+     * @return The number of tasks that ran.
+     */
+    public int processWithin(float focusX, int radius) {
+        int ran = 0;
+        Integer nearest;
+        while ((nearest = nearestKey(focusX)) != null && Math.abs(nearest - focusX) <= radius) {
+            poll(nearest).run();
+            ran++;
+        }
+        return ran;
+    }
+
+    /**
+     * Gets the number of pending tasks.
+     *
+     * @return The number of pending tasks.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether there is pending work.
+     *
+     * @return True if no task is pending, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the pending task nearest to any of the focus points.
+     *
+     * @param focusXs The x-coordinates around which work is prioritized.
+     * @return The removed task, or null if the queue is empty.
+     */
+    private Runnable pollNearest(float[] focusXs) {
+        Integer nearest = null;
+        for (float focusX : focusXs) {
+            Integer candidate = nearestKey(focusX);
+            if (candidate != null && (nearest == null
+                    || Math.abs(candidate - focusX) < minDistance(nearest, focusXs))) {
+                nearest = candidate;
+            }
+        }
+        return nearest == null ? null : poll(nearest);
+    }
+
+    /**
+     * Gets the distance from an x-coordinate to the nearest of the focus points.
+     *
+     * @param x The x-coordinate.
+     * @param focusXs The focus points.
+     * @return The distance to the nearest focus point.
+     */
+    private static float minDistance(int x, float[] focusXs) {
+        float distance = Float.POSITIVE_INFINITY;
+        for (float focusX : focusXs) {
+            distance = Math.min(distance, Math.abs(x - focusX));
+        }
+        return distance;
+    }
+
+    /**
+     * Finds the x-coordinate of the pending tasks nearest to the focus point.
+     *
+     * @param focusX The x-coordinate around which work is prioritized.
+     * @return The nearest x-coordinate with pending tasks, or null if the queue is empty.
+     */
+    private Integer nearestKey(float focusX) {
+        int focus = (int) focusX;
+        Integer below = tasks.floorKey(focus);
+        Integer above = tasks.ceilingKey(focus);
+        Integer nearest;
+        if (below == null) {
+            nearest = above;
+        } else if (above == null) {
+            nearest = below;
+        } else {
+            nearest = focus - below <= above - focus ? below : above;
+        }
+        return nearest;
+    }
+
+    /**
+     * Removes a pending task at an x-coordinate.
+     *
+     * @param nearest An x-coordinate with pending tasks.
+     * @return The removed task.
+     */
+    private Runnable poll(int nearest) {
+        ArrayDeque<Runnable> atX = tasks.get(nearest);
+        Runnable task = atX.poll();
+        if (atX.isEmpty()) {
+            tasks.remove(nearest);
+        }
+        size--;
+        return task;
+    }
+}
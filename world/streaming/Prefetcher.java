@@ -0,0 +1,79 @@
+package pepse.world.streaming;
+
+/**
+ * Decides how far beyond the resident range the world should be generated ahead of time.
+ * The lookahead grows with the avatar's speed and always points in its direction of movement;
+ * when the avatar slows down or stops, it is released gradually rather than dropped, so that
+ * letting go of a key does not evict the strip ahead only for it to be generated again when
+ * the key is pressed. When the avatar turns around, the lookahead behind it is dropped.
+ */
+public class Prefetcher {
+
+    private final float lookaheadSeconds;
+    private final int step;
+    private int direction;
+    private int lookahead;
+    /** The lookahead before it is rounded to whole steps, and its length when it last grew */
+    private float extent;
+    private float peakExtent;
+
+    /**
+     * Constructs a Prefetcher instance.
+     *
+     * @param lookaheadSeconds How far ahead to prefetch, in seconds of movement at the current speed.
+     *                         A released lookahead drains within the same number of seconds.
+     * @param step The granularity of the lookahead, in pixels. Lookahead changes smaller than
+     *             a step are ignored, so the resident range is not recomputed on every frame.
+     */
+    public Prefetcher(float lookaheadSeconds, int step) {
+        this.lookaheadSeconds = lookaheadSeconds;
+        this.step = step;
+    }
+
+    /**
+     * Updates the lookahead from the avatar's current horizontal velocity.
+     *
+     * @param velocityX The horizontal velocity of the avatar, in pixels per second.
+     * @param deltaTime Time elapsed since the last update, in seconds.
+     * @return True if the lookahead changed, false otherwise.
+     */
+    public boolean update(float velocityX, float deltaTime) {
+        int oldDirection = direction;
+        int newDirection = (int) Math.signum(velocityX);
+        float targetExtent = Math.abs(velocityX) * lookaheadSeconds;
+        if (newDirection != 0 && newDirection != direction) {
+            direction = newDirection;
+            extent = targetExtent;
+            peakExtent = targetExtent;
+        } else if (targetExtent >= extent) {
+            extent = targetExtent;
+            peakExtent = targetExtent;
+        } else {
+            extent = Math.max(targetExtent, extent - peakExtent / lookaheadSeconds * deltaTime);
+        }
+        int newLookahead = (int) Math.ceil(extent / step) * step;
+        if (newLookahead == lookahead && direction == oldDirection) {
+            return false;
+        }
+        lookahead = newLookahead;
+        return true;
+    }
+
+    /**
+     * Gets the distance to prefetch beyond the left edge of the resident range.
+     *
+     * @return The left lookahead, in pixels.
+     */
+    public int getLeftLookahead() {
+        return direction < 0 ? lookahead : 0;
+    }
+
+    /**
+     * Gets the distance to prefetch beyond the right edge of the resident range.
+     *
+     * @return The right lookahead, in pixels.
+     */
+    public int getRightLookahead() {
+        return direction > 0 ? lookahead : 0;
+    }
+}
@@ -0,0 +1,100 @@
+package pepse.world.streaming;
+
+/**
+ * Tracks the range of the world that is loaded for a single avatar.
+ * The range reaches the view distance to either side of its center. It is shifted by a part of
+ * the view distance whenever the avatar comes within that distance of one of its edges, and
+ * extended in the avatar's direction of movement by a {@link Prefetcher}.
+ */
+public class Viewer {
+
+    private static final float SHIFT_RATIO = 0.4f;
+
+    private final Prefetcher prefetcher;
+    private float centerX;
+    private float viewDistance;
+
+    /**
+     * Constructs a Viewer instance.
+     *
+     * @param centerX The initial x-coordinate of the center of the range.
+     * @param viewDistance How far the range reaches to either side of its center, in pixels.
+     * @param prefetcher Decides how far ahead of the range the world is loaded.
+     */
+    public Viewer(float centerX, float viewDistance, Prefetcher prefetcher) {
+        this.centerX = centerX;
+        this.viewDistance = viewDistance;
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Moves the range after the avatar.
+     *
+     * @param x The x-coordinate of the avatar.
+     * @param velocityX The horizontal velocity of the avatar, in pixels per second.
+     * @param deltaTime Time elapsed since the last update, in seconds.
+     * @return True if the loaded range changed, false otherwise.
+     */
+    public boolean update(float x, float velocityX, float deltaTime) {
+        float shift = viewDistance * SHIFT_RATIO;
+        boolean changed = false;
+        if (x - (centerX - viewDistance) < shift) {
+            moveBy(-shift);
+            changed = true;
+        } else if (centerX + viewDistance - x < shift) {
+            moveBy(shift);
+            changed = true;
+        }
+        return prefetcher.update(velocityX, deltaTime) || changed;
+    }
+
+    /**
+     * Sets how far the range reaches to either side of its center.
+     *
+     * @param viewDistance The view distance, in pixels.
+     * @return True if the loaded range changed, false otherwise.
+     */
+    public boolean setViewDistance(float viewDistance) {
+        if (viewDistance == this.viewDistance) {
+            return false;
+        }
+        this.viewDistance = viewDistance;
+        return true;
+    }
+
+    /**
+     * Gets how far the range reaches to either side of its center.
+     *
+     * @return The view distance, in pixels.
+     */
+    public float getViewDistance() {
+        return viewDistance;
+    }
+
+    /**
+     * Gets the minimum x-coordinate of the loaded range, including the prefetch lookahead.
+     *
+     * @return The minimum x-coordinate.
+     */
+    public int getLoadMinX() {
+        return (int) (centerX - viewDistance) - prefetcher.getLeftLookahead();
+    }
+
+    /**
+     * Gets the maximum x-coordinate of the loaded range, including the prefetch lookahead.
+     *
+     * @return The maximum x-coordinate.
+     */
+    public int getLoadMaxX() {
+        return (int) (centerX + viewDistance) + prefetcher.getRightLookahead();
+    }
+
+    /**
+     * Moves the range, such as when the avatar is teleported.
+     *
+     * @param offset The horizontal distance to move the range by, in pixels.
+     */
+    public void moveBy(float offset) {
+        centerX += offset;
+    }
+}
@@ -0,0 +1,590 @@
+package pepse.world.streaming;
+
+import danogl.collisions.Layer;
+import pepse.world.Block;
+import pepse.world.Terrain;
+import pepse.world.TerrainChunk;
+import pepse.world.culling.ViewportCuller;
+import pepse.world.persistence.EatenFruitStore;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps the terrain and trees of the ranges of the world around every viewer resident in
+ * the game. A viewer is anything the world is loaded for, such as an avatar.
+ * Entering terrain chunks and tree slots are not built at once: they are queued on a
+ * {@link GenerationQueue} and materialized a few at a time, nearest to an avatar first.
+ * Collision blocks are only materialized for the terrain around the avatars.
+ * Every chunk and tree slot counts the viewers whose range, widened by the unload margin,
+ * covers it, so overlapping ranges share one set of objects. A chunk or slot is only evicted
+ * once no viewer covers it, so a range that moves back and forth does not recreate the same
+ * objects.
+ * Evicted trees are not kept: they are rebuilt from their layout when they come back, with
+ * the fruit that was eaten restored from the eaten fruit store.
+ * The streamer counts the chunks and trees it generates and evicts, for monitoring.
+ */
+public class WorldStreamer {
+
+    private final ViewportCuller viewportCuller;
+    private final Terrain terrain;
+    private final Flora flora;
+    private final GenerationQueue queue;
+    private final int paddingBetweenTrees;
+    private final int unloadMargin;
+    private final int colliderRadius;
+    private final EatenFruitStore eatenFruitStore;
+    /** The retained range of every viewer: the range widened by the unload margin */
+    private final HashMap<Integer, int[]> viewerRanges = new HashMap<>();
+    /** The number of viewers whose retained range covers each chunk's center */
+    private final HashMap<Integer, Integer> chunkRefs = new HashMap<>();
+    /** The number of viewers whose retained range covers each tree slot */
+    private final HashMap<Integer, Integer> treeSlotRefs = new HashMap<>();
+    /** Chunks that are built or queued */
+    private final HashSet<Integer> residentChunks = new HashSet<>();
+    /** Tree slots that are built or queued */
+    private final HashSet<Integer> residentTreeSlots = new HashSet<>();
+    /** Tree slots whose trees are built */
+    private final HashSet<Integer> builtTreeSlots = new HashSet<>();
+    private int[] colliderColumns = new int[0];
+    private long chunksGenerated;
+    private long chunksEvicted;
+    private long treesGenerated;
+    private long treesEvicted;
+
+    /**
+     * Constructs a WorldStreamer instance.
+     *
+     * @param viewportCuller The culler that streamed objects are added to and removed from.
+     * @param terrain The terrain to stream.
+     * @param flora The flora to stream.
+     * @param queue The queue that generation work is deferred to.
+     * @param paddingBetweenTrees The distance between two tree slots, in pixels.
+     * @param unloadMargin How far outside a viewer's range objects are kept before
+     *                     they are evicted, in pixels.
+     * @param colliderRadius How far from an avatar terrain collision blocks are materialized,
+     *                       in pixels.
+     * @param eatenFruitStore The store that eaten fruit is recorded to and restored from,
+     *                        or null to not keep track of it.
+     */
+    public WorldStreamer(ViewportCuller viewportCuller, Terrain terrain, Flora flora,
+                         GenerationQueue queue, int paddingBetweenTrees, int unloadMargin,
+                         int colliderRadius, EatenFruitStore eatenFruitStore) {
+        this.viewportCuller = viewportCuller;
+        this.terrain = terrain;
+        this.flora = flora;
+        this.queue = queue;
+        this.paddingBetweenTrees = paddingBetweenTrees;
+        this.unloadMargin = unloadMargin;
+        this.colliderRadius = colliderRadius;
+        this.eatenFruitStore = eatenFruitStore;
+    }
+
+    /**
+     * Sets the range of the world that should be resident for a viewer.
+     * Everything missing inside the range is queued for generation, and everything that is
+     * further than the unload margin outside the range of every viewer is evicted immediately.
+     *
+     * @param viewer The identifier of the viewer.
+     * @param minX The minimum x-coordinate of the range.
+     * @param maxX The maximum x-coordinate of the range.
+     */
+    public void setRange(int viewer, int minX, int maxX) {
+        int[] oldRange = viewerRanges.put(viewer, new int[]{minX - unloadMargin, maxX + unloadMargin});
+        retain(oldRange, viewerRanges.get(viewer));
+        for (int index = firstChunk(minX); chunkCenter(index) <= maxX; index++) {
+            if (residentChunks.add(index)) {
+                int chunkIndex = index;
+                queue.submit(chunkCenter(chunkIndex), () -> expandTerrain(chunkIndex));
+            }
+        }
+        for (int slot = firstSlot(minX); slot <= maxX; slot += paddingBetweenTrees) {
+            if (residentTreeSlots.add(slot)) {
+                int treeSlot = slot;
+                queue.submit(treeSlot, () -> expandTrees(treeSlot));
+            }
+        }
+    }
+
+    /**
+     * Removes a viewer, evicting everything that no other viewer covers.
+     *
+     * @param viewer The identifier of the viewer.
+     */
+    public void removeViewer(int viewer) {
+        int[] oldRange = viewerRanges.remove(viewer);
+        if (oldRange != null) {
+            retain(oldRange, null);
+        }
+    }
+
+    /**
+     * Moves the origin of the world, so that coordinates stay small and precise however far
+     * the avatars walk. Everything resident moves the other way and keeps its references;
+     * queued work is dropped, so the viewers' ranges, moved by the caller, must be set again.
+     *
+     * @param shift The distance to move the origin by, in pixels; a whole number of chunks,
+     *              tree slots and culling buckets.
+     * @throws IllegalArgumentException If the distance is not a whole number of tree slots.
+     */
+    public void rebase(int shift) {
+        if (shift % paddingBetweenTrees != 0) {
+            throw new IllegalArgumentException("Cannot move the origin by part of a tree slot: " + shift);
+        }
+        terrain.rebase(shift);
+        flora.rebase(shift);
+        viewportCuller.rebase(shift);
+        queue.clear();
+        int chunkShift = shift / TerrainChunk.WIDTH;
+        shiftKeys(chunkRefs, chunkShift);
+        shiftKeys(treeSlotRefs, shift);
+        shiftKeys(residentChunks, chunkShift);
+        shiftKeys(residentTreeSlots, shift);
+        shiftKeys(builtTreeSlots, shift);
+        residentChunks.removeIf(index -> !terrain.hasChunk(index));
+        residentTreeSlots.retainAll(builtTreeSlots);
+        for (int[] range : viewerRanges.values()) {
+            range[0] -= shift;
+            range[1] -= shift;
+        }
+        colliderColumns = new int[0];
+    }
+
+    /**
+     * Runs queued generation work for this frame, within the queue's budget.
+     *
+     * @param focusXs The x-coordinates of the avatars, around which work is prioritized.
+     */
+    public void update(float... focusXs) {
+        terrain.updateLevelOfDetail(focusXs);
+        queue.process(focusXs);
+        updateColliders(focusXs);
+    }
+
+    /**
+     * Moves the vertical range of the terrain that is resident, following the camera.
+     *
+     * @param viewTop The minimum y-coordinate of the view, in world coordinates.
+     * @param viewBottom The maximum y-coordinate of the view, in world coordinates.
+     */
+    public void setVerticalView(float viewTop, float viewBottom) {
+        terrain.updateVerticalRange(viewTop, viewBottom);
+    }
+
+    /**
+     * Runs all queued generation work at once.
+     *
+     * @param focusX The x-coordinate around which work is prioritized.
+     */
+    public void flush(float focusX) {
+        terrain.updateLevelOfDetail(focusX);
+        queue.processAll(focusX);
+    }
+
+    /**
+     * Runs the queued generation work around a point at once, leaving the rest for later
+     * frames. Used at startup, so the first frame only waits for the avatar's surroundings.
+     *
+     * @param focusX The x-coordinate around which work is done.
+     * @param radius The distance from the focus point within which work is done, in pixels.
+     */
+    public void flushAround(float focusX, int radius) {
+        flushAround(focusX, radius, null);
+    }
+
+    /**
+     * Runs the queued generation work around a point at once, leaving the rest for later
+     * frames. The terrain chunks around the point are built in one batch on a fork/join pool.
+     * Used at startup and after a teleport, so the wait only depends on the size of the
+     * surroundings, not on how far the avatar moved.
+     *
+     * @param focusX The x-coordinate around which work is done.
+     * @param radius The distance from the focus point within which work is done, in pixels.
+     * @param pool The pool to build the chunks on, or null to build them one by one.
+     */
+    public void flushAround(float focusX, int radius, ForkJoinPool pool) {
+        terrain.updateLevelOfDetail(focusX);
+        List<Integer> indices = new ArrayList<>();
+        for (int index : chunksInRange(new int[]{(int) focusX - radius, (int) focusX + radius})) {
+            if (residentChunks.contains(index) && chunkRefs.containsKey(index) && !terrain.hasChunk(index)) {
+                indices.add(index);
+            }
+        }
+        // Their queued tasks find the chunks built and do nothing.
+        for (TerrainChunk chunk : terrain.createChunks(indices, pool)) {
+            viewportCuller.addGameObject(chunk, Terrain.CHUNK_LAYER);
+        }
+        chunksGenerated += indices.size();
+        queue.processWithin(focusX, radius);
+    }
+
+    /**
+     * Materializes the terrain collision blocks around every avatar and evicts the ones they
+     * have all left behind. The work is only done when an avatar enters another column.
+     * It is done on every {@link #update}; after a flush outside the game loop it must be done
+     * with every avatar before the next physics step, as flushes leave the colliders alone.
+     *
+     * @param focusXs The x-coordinates of the avatars.
+     */
+    public void updateColliders(float... focusXs) {
+        int[] columns = new int[focusXs.length];
+        for (int i = 0; i < focusXs.length; i++) {
+            columns[i] = Math.floorDiv((int) focusXs[i], Block.SIZE);
+        }
+        if (Arrays.equals(columns, colliderColumns)) {
+            return;
+        }
+        colliderColumns = columns;
+        int reach = colliderRadius + Block.SIZE;
+        for (Block block : terrain.filterBlocks(x -> {
+            for (int column : columns) {
+                if (Math.abs(x - column * Block.SIZE) <= reach) {
+                    return true;
+                }
+            }
+            return false;
+        })) {
+            viewportCuller.removeGameObject(block, Layer.STATIC_OBJECTS);
+        }
+        for (int column : columns) {
+            int x = column * Block.SIZE;
+            for (Block block : terrain.materializeInRange(x - colliderRadius, x + colliderRadius)) {
+                viewportCuller.addGameObject(block, Layer.STATIC_OBJECTS);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of queued generation tasks.
+     *
+     * @return The number of pending tasks.
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the terrain that is streamed.
+     *
+     * @return The terrain.
+     */
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Gets the flora that is streamed.
+     *
+     * @return The flora.
+     */
+    public Flora getFlora() {
+        return flora;
+    }
+
+    /**
+     * Gets the queue that generation work is deferred to.
+     *
+     * @return The generation queue.
+     */
+    public GenerationQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Gets the number of terrain chunks generated since the streamer was created.
+     *
+     * @return The number of chunks.
+     */
+    public long getChunksGenerated() {
+        return chunksGenerated;
+    }
+
+    /**
+     * Gets the number of terrain chunks evicted since the streamer was created.
+     *
+     * @return The number of chunks.
+     */
+    public long getChunksEvicted() {
+        return chunksEvicted;
+    }
+
+    /**
+     * Gets the number of trees generated since the streamer was created.
+     *
+     * @return The number of trees.
+     */
+    public long getTreesGenerated() {
+        return treesGenerated;
+    }
+
+    /**
+     * Gets the number of trees evicted since the streamer was created.
+     *
+     * @return The number of trees.
+     */
+    public long getTreesEvicted() {
+        return treesEvicted;
+    }
+
+    /**
+     * Moves a viewer's reference from one retained range to another. Chunks and tree slots
+     * that only the old range covers lose a reference, and are evicted once none is left.
+     * The queue is trimmed to the union of the retained ranges.
+     *
+     * @param oldRange The viewer's previous retained range, or null if it had none.
+     * @param newRange The viewer's new retained range, or null if it has none.
+     */
+    private void retain(int[] oldRange, int[] newRange) {
+        for (int index : chunksInRange(newRange)) {
+            if (!covers(oldRange, chunkCenter(index))) {
+                chunkRefs.merge(index, 1, Integer::sum);
+            }
+        }
+        for (int slot : slotsInRange(newRange)) {
+            if (!covers(oldRange, slot)) {
+                treeSlotRefs.merge(slot, 1, Integer::sum);
+            }
+        }
+        for (int index : chunksInRange(oldRange)) {
+            if (!covers(newRange, chunkCenter(index)) && release(chunkRefs, index)) {
+                reduceTerrain(index);
+            }
+        }
+        for (int slot : slotsInRange(oldRange)) {
+            if (!covers(newRange, slot) && release(treeSlotRefs, slot)) {
+                reduceTrees(slot);
+            }
+        }
+        int unionMinX = Integer.MAX_VALUE;
+        int unionMaxX = Integer.MIN_VALUE;
+        for (int[] range : viewerRanges.values()) {
+            unionMinX = Math.min(unionMinX, range[0]);
+            unionMaxX = Math.max(unionMaxX, range[1]);
+        }
+        queue.cancelOutOfRange(unionMinX, unionMaxX);
+    }
+
+    /**
+     * Lists the chunks whose center is in a range.
+     *
+     * @param range The range, or null for none.
+     * @return The indices of the chunks, in increasing order.
+     */
+    private static List<Integer> chunksInRange(int[] range) {
+        List<Integer> indices = new ArrayList<>();
+        if (range != null) {
+            for (int index = firstChunk(range[0]); chunkCenter(index) <= range[1]; index++) {
+                indices.add(index);
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Lists the tree slots in a range.
+     *
+     * @param range The range, or null for none.
+     * @return The x-coordinates of the tree slots, in increasing order.
+     */
+    private List<Integer> slotsInRange(int[] range) {
+        List<Integer> slots = new ArrayList<>();
+        if (range != null) {
+            for (int slot = firstSlot(range[0]); slot <= range[1]; slot += paddingBetweenTrees) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Moves every key of a map the other way of the origin.
+     *
+     * @param map The map, keyed by chunk index or x-coordinate.
+     * @param shift The distance the origin moved by, in the keys' unit.
+     * @param <V> The type of the values.
+     */
+    private static <V> void shiftKeys(HashMap<Integer, V> map, int shift) {
+        HashMap<Integer, V> moved = new HashMap<>(map);
+        map.clear();
+        moved.forEach((key, value) -> map.put(key - shift, value));
+    }
+
+    /**
+     * Moves every key of a set the other way of the origin.
+     *
+     * @param set The set of chunk indices or x-coordinates.
+     * @param shift The distance the origin moved by, in the keys' unit.
+     */
+    private static void shiftKeys(HashSet<Integer> set, int shift) {
+        List<Integer> moved = new ArrayList<>(set);
+        set.clear();
+        for (int key : moved) {
+            set.add(key - shift);
+        }
+    }
+
+    /**
+     * Checks whether a range covers an x-coordinate.
+     *
+     * @param range The range, or null for none.
+     * @param x The x-coordinate.
+     * @return True if the range covers the coordinate, false otherwise.
+     */
+    private static boolean covers(int[] range, int x) {
+        return range != null && x >= range[0] && x <= range[1];
+    }
+
+    /**
+     * Drops a reference to a chunk or tree slot.
+     *
+     * @param refs The reference counts.
+     * @param key The chunk index or tree slot.
+     * @return True if no reference is left, false otherwise.
+     */
+    private static boolean release(HashMap<Integer, Integer> refs, int key) {
+        if (refs.merge(key, -1, Integer::sum) > 0) {
+            return false;
+        }
+        refs.remove(key);
+        return true;
+    }
+
+    /**
+     * Generates a single terrain chunk and adds it to the game, unless no viewer covers it
+     * anymore or it was already built by an earlier task.
+     *
+     * @param index The index of the chunk.
+     */
+    private void expandTerrain(int index) {
+        if (!chunkRefs.containsKey(index) || terrain.hasChunk(index)) {
+            return;
+        }
+        viewportCuller.addGameObject(terrain.createChunk(index), Terrain.CHUNK_LAYER);
+        chunksGenerated++;
+        // The chunk may lie under an avatar, so its colliders are materialized on the next update.
+        colliderColumns = new int[0];
+    }
+
+    /**
+     * Removes a terrain chunk that no viewer covers anymore, along with its collision blocks.
+     *
+     * @param index The index of the chunk.
+     */
+    private void reduceTerrain(int index) {
+        residentChunks.remove(index);
+        List<Block> removedBlocks = new ArrayList<>();
+        TerrainChunk chunk = terrain.removeChunk(index, removedBlocks);
+        if (chunk != null) {
+            viewportCuller.removeGameObject(chunk, Terrain.CHUNK_LAYER);
+            chunksEvicted++;
+        }
+        for (Block block : removedBlocks) {
+            viewportCuller.removeGameObject(block, Layer.STATIC_OBJECTS);
+        }
+    }
+
+    /**
+     * Gets the x-coordinate of the center of a chunk, which decides whether the chunk is in a range.
+     *
+     * @param index The index of the chunk.
+     * @return The x-coordinate of the chunk's center.
+     */
+    private static int chunkCenter(int index) {
+        return index * TerrainChunk.WIDTH + TerrainChunk.WIDTH / 2;
+    }
+
+    /**
+     * Gets the first chunk whose center is in a range.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @return The index of the chunk.
+     */
+    private static int firstChunk(int minX) {
+        return Math.floorDiv(minX + TerrainChunk.WIDTH / 2 - 1, TerrainChunk.WIDTH);
+    }
+
+    /**
+     * Gets the first tree slot in a range.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @return The x-coordinate of the tree slot.
+     */
+    private int firstSlot(int minX) {
+        return Math.floorDiv(minX + paddingBetweenTrees - 1, paddingBetweenTrees) * paddingBetweenTrees;
+    }
+
+    /**
+     * Adds the tree of a single tree slot to the game, unless no viewer covers the slot
+     * anymore or its tree was already built by an earlier task.
+     *
+     * @param slot The x-coordinate of the tree slot.
+     */
+    private void expandTrees(int slot) {
+        if (!treeSlotRefs.containsKey(slot) || !builtTreeSlots.add(slot)) {
+            return;
+        }
+        HashMap<Tree, TreeData> newTrees = flora.createInRange(slot, slot + Tree.WIDTH_TREE);
+        addTrees(newTrees);
+        treesGenerated += newTrees.size();
+    }
+
+    /**
+     * Removes the tree of a tree slot that no viewer covers anymore.
+     *
+     * @param slot The x-coordinate of the tree slot.
+     */
+    private void reduceTrees(int slot) {
+        residentTreeSlots.remove(slot);
+        if (!builtTreeSlots.remove(slot)) {
+            return;
+        }
+        HashMap<Tree, TreeData> removedTrees = flora.removeInRange(slot, slot + paddingBetweenTrees - 1);
+        treesEvicted += removedTrees.size();
+        for (Map.Entry<Tree, TreeData> entry : removedTrees.entrySet()) {
+            Tree tree = entry.getKey();
+            TreeData treeData = entry.getValue();
+            viewportCuller.removeGameObject(tree, Layer.STATIC_OBJECTS);
+            for (Leaf leaf : treeData.getLeaves()) {
+                viewportCuller.removeGameObject(leaf, Layer.STATIC_OBJECTS);
+            }
+            for (Fruit fruit : treeData.getFruits()) {
+                viewportCuller.removeGameObject(fruit, Layer.STATIC_OBJECTS);
+            }
+        }
+    }
+
+    /**
+     * Adds trees to the game world, hiding the fruit that is recorded as eaten.
+     *
+     * @param newTrees A map of trees and their data to add.
+     */
+    private void addTrees(HashMap<Tree, TreeData> newTrees) {
+        for (Map.Entry<Tree, TreeData> entry : newTrees.entrySet()) {
+            Tree tree = entry.getKey();
+            TreeData treeData = entry.getValue();
+            viewportCuller.addGameObject(tree, Layer.STATIC_OBJECTS);
+            for (Leaf leaf : treeData.getLeaves()) {
+                viewportCuller.addGameObject(leaf, Layer.STATIC_OBJECTS);
+            }
+            for (Fruit fruit : treeData.getFruits()) {
+                viewportCuller.addGameObject(fruit, Layer.STATIC_OBJECTS);
+                if (eatenFruitStore != null) {
+                    fruit.setFruitListener(eatenFruitStore);
+                    if (eatenFruitStore.isEaten(fruit)) {
+                        fruit.hideUntilRegrown();
+                    }
+                }
+            }
+        }
+    }
+}
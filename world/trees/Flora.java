@@ -2,15 +2,19 @@ package pepse.world.trees;
 
 import danogl.util.Vector2;
 import pepse.world.Block;
+import pepse.world.cache.WorldCache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.function.Function;
 
 /**
  * Handles the creation and management of trees, leaves, and fruits in the game world.
+ * Every tree is built from a {@link TreeLayout}, which depends only on the seed and the tree's
+ * x-coordinate, and is read from the world cache when it was generated before.
  */
 public class Flora {
 
@@ -18,10 +22,16 @@ public class Flora {
     private static final int WINDOW_CENTER_RATIO = 2;
     private static final int TREES_IN_RANGE_JUMPS = 850;
     private static final float ROUND_X_RANGE = 100;
-    private static final int ROWS_AND_COLS_OF_TREE = 5;
+    private static final long LAYOUT_SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long FINGERPRINT_MULTIPLIER = 31;
     private final Function<Float, Float> groundHeightAt;
     private final HashMap<Tree, TreeData> treeMap = new HashMap<>();
     private final Random random;
+    private final int seed;
+    private WorldCache worldCache;
+    private float leafAnimationDensity = 1f;
+    /** The absolute x-coordinate of x = 0 */
+    private int originX;
 
     /**
      * Constructs a Flora instance.
@@ -31,41 +41,36 @@ public class Flora {
      */
     public Flora(Function<Float, Float> groundHeightAt, int seed) {
         this.random = new Random(seed);
+        this.seed = seed;
         this.groundHeightAt = groundHeightAt;
     }
 
     /**
-     * Creates leaves and fruits for a given tree.
+     * Creates leaves and fruits for a given tree, in the crown cells its layout marks.
      *
      * @param startX The starting x-coordinate for creating leaves and fruits.
      * @param startY The starting y-coordinate for creating leaves and fruits.
      * @param tree The tree to associate with the leaves and fruits.
+     * @param layout The layout of the tree.
      * @param leafList The list to populate with created leaves.
      * @param fruitList The list to populate with created fruits.
      * @return A TreeData object containing the created leaves and fruits.
      */
-    public TreeData createLeafsAndFruit(int startX, int startY, Tree tree,
+    public TreeData createLeafsAndFruit(int startX, int startY, Tree tree, TreeLayout layout,
                                         List<Leaf> leafList, List<Fruit> fruitList) {
-        for (int i = 0; i < ROWS_AND_COLS_OF_TREE; i++) {
-            for (int j = 0; j < ROWS_AND_COLS_OF_TREE; j++) {
-                boolean isntLeaf = random.nextBoolean();
-                boolean isntFruit = random.nextBoolean();
-                if (isntLeaf && isntFruit) {
-                    continue;
-                }
-                if (!isntLeaf) {
-                    int xPos = startX + j * Block.SIZE;
-                    int yPos = (int) (startY + i * Block.SIZE -
-                            tree.getDimensions().y() / WINDOW_CENTER_RATIO);
-                    Leaf leaf = new Leaf(new Vector2(xPos, yPos));
+        for (int i = 0; i < TreeLayout.CROWN_SIZE; i++) {
+            for (int j = 0; j < TreeLayout.CROWN_SIZE; j++) {
+                int xPos = startX + j * Block.SIZE;
+                int yPos = (int) (startY + i * Block.SIZE -
+                        tree.getDimensions().y() / WINDOW_CENTER_RATIO);
+                if (layout.hasLeaf(i, j)) {
+                    Leaf leaf = new Leaf(new Vector2(xPos, yPos), leafAnimationDensity);
                     leaf.setTag(Leaf.LEAF_TAG);
                     leafList.add(leaf);
                 }
-                if (!isntFruit) {
-                    int xPos = startX + j * Block.SIZE;
-                    int yPos = (int) (startY + i * Block.SIZE -
-                            tree.getDimensions().y() / WINDOW_CENTER_RATIO);
-                    Fruit fruit = new Fruit(new Vector2(xPos, yPos));
+                if (layout.hasFruit(i, j)) {
+                    Fruit fruit = new Fruit(new Vector2(xPos, yPos), layout.getX(),
+                            i * TreeLayout.CROWN_SIZE + j);
                     fruit.setTag(Fruit.FRUIT_TAG);
                     fruitList.add(fruit);
                 }
@@ -75,13 +80,69 @@ public class Flora {
     }
 
     /**
-     * Associates a previously created tree with its TreeData.
+     * Generates the layout of the tree at an x-coordinate. The crown is drawn from a random
+     * generator seeded by the seed and the x-coordinate, so a tree always grows back the same.
+     *
+     * @param x The absolute x-coordinate of the tree.
+     * @return The layout of the tree.
+     */
+    public TreeLayout createLayout(int x) {
+        random.setSeed(seed * LAYOUT_SEED_MULTIPLIER + x);
+        int leafMask = 0;
+        int fruitMask = 0;
+        for (int i = 0; i < TreeLayout.CROWN_SIZE; i++) {
+            for (int j = 0; j < TreeLayout.CROWN_SIZE; j++) {
+                boolean isntLeaf = random.nextBoolean();
+                boolean isntFruit = random.nextBoolean();
+                if (!isntLeaf) {
+                    leafMask |= TreeLayout.bit(i, j);
+                }
+                if (!isntFruit) {
+                    fruitMask |= TreeLayout.bit(i, j);
+                }
+            }
+        }
+        return new TreeLayout(x, groundHeightAt.apply((float) (x - originX)), Tree.calculateTreeHeight(x),
+                leafMask, fruitMask);
+    }
+
+    /**
+     * Gets a fingerprint of the parameters trees are placed and laid out with, so that a world
+     * cache written with different parameters is not reused.
      *
-     * @param tree The tree to associate.
-     * @param treeData The data (leaves and fruits) associated with the tree.
+     * @return The fingerprint of the tree parameters.
      */
-    public void createPastTree(Tree tree, TreeData treeData) {
-        treeMap.put(tree, treeData);
+    public long getFingerprint() {
+        long fingerprint = TREES_IN_RANGE_JUMPS;
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + Float.floatToIntBits(ROUND_X_RANGE);
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + LAYOUT_SEED_MULTIPLIER;
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + TreeLayout.CROWN_SIZE;
+        fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + Tree.TREE_HEIGHT_MIN;
+        return fingerprint * FINGERPRINT_MULTIPLIER + Tree.TREE_HEIGHT_VARIATION;
+    }
+
+    /**
+     * Sets the cache that tree layouts are read from and recorded to.
+     *
+     * @param worldCache The world cache, or null to always generate layouts.
+     */
+    public void setWorldCache(WorldCache worldCache) {
+        this.worldCache = worldCache;
+    }
+
+    /**
+     * Sets the fraction of leaves that are animated, on the resident trees and on the trees
+     * created from now on.
+     *
+     * @param leafAnimationDensity The fraction of leaves that are animated, between 0 and 1.
+     */
+    public void setLeafAnimationDensity(float leafAnimationDensity) {
+        this.leafAnimationDensity = leafAnimationDensity;
+        for (TreeData treeData : treeMap.values()) {
+            for (Leaf leaf : treeData.getLeaves()) {
+                leaf.setAnimationDensity(leafAnimationDensity);
+            }
+        }
     }
 
     /**
@@ -89,14 +150,22 @@ public class Flora {
      *
      * @param minX The minimum x-coordinate of the range.
      * @param maxX The maximum x-coordinate of the range.
-     * @return A HashMap mapping created trees to their associated TreeData.
+     * @return A HashMap mapping the newly created trees to their associated TreeData.
      */
     public HashMap<Tree, TreeData> createInRange(int minX, int maxX) {
+        HashMap<Tree, TreeData> createdTrees = new HashMap<>();
         int roundedMinX = (int) (Math.ceil(minX / ROUND_X_RANGE) * ROUND_X_RANGE);
         int roundedMaxX = (int) (Math.floor(maxX / ROUND_X_RANGE) * ROUND_X_RANGE);
         for (int x = roundedMinX; x <= roundedMaxX; x += TREES_IN_RANGE_JUMPS) {
-            Vector2 heightByX = new Vector2(x, groundHeightAt.apply((float) x));
-            Tree tree = new Tree(heightByX);
+            TreeLayout layout = worldCache == null ? null : worldCache.getTreeLayout(originX + x);
+            if (layout == null) {
+                layout = createLayout(originX + x);
+                if (worldCache != null) {
+                    worldCache.putTreeLayout(layout);
+                }
+            }
+            Vector2 heightByX = new Vector2(x, layout.getGroundHeight());
+            Tree tree = new Tree(heightByX, layout.getHeight());
             tree.setTopLeftCorner(new Vector2(tree.getTopLeftCorner().x(),
                     tree.getTopLeftCorner().y() - tree.getDimensions().y()));
             tree.setTag(Tree.Tree_TAG);
@@ -104,9 +173,92 @@ public class Flora {
             List<Fruit> fruitList = new ArrayList<>();
             int startX = (int) (tree.getTopLeftCorner().x() + PADDING_TREES);
             int startY = (int) (tree.getTopLeftCorner().y() - Block.SIZE);
-            treeMap.put(tree, createLeafsAndFruit(startX, startY, tree, leafList, fruitList));
+            TreeData treeData = createLeafsAndFruit(startX, startY, tree, layout, leafList, fruitList);
+            treeMap.put(tree, treeData);
+            createdTrees.put(tree, treeData);
         }
-        return treeMap;
+        return createdTrees;
+    }
+
+    /**
+     * Moves the origin of the world. Every resident tree, leaf and fruit moves the other way;
+     * trees are still generated from, and remembered by, their absolute x-coordinates.
+     *
+     * @param shift The distance to move the origin by, in pixels; a multiple of the tree grid.
+     * @throws IllegalArgumentException If the distance would move trees off the tree grid.
+     */
+    public void rebase(int shift) {
+        if (shift % ROUND_X_RANGE != 0) {
+            throw new IllegalArgumentException("Cannot move the origin off the tree grid: " + shift);
+        }
+        originX += shift;
+        Vector2 offset = new Vector2(-shift, 0);
+        for (Map.Entry<Tree, TreeData> entry : treeMap.entrySet()) {
+            Tree tree = entry.getKey();
+            tree.setTopLeftCorner(tree.getTopLeftCorner().add(offset));
+            for (Leaf leaf : entry.getValue().getLeaves()) {
+                leaf.setTopLeftCorner(leaf.getTopLeftCorner().add(offset));
+            }
+            for (Fruit fruit : entry.getValue().getFruits()) {
+                fruit.moveBy(-shift);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of resident trees.
+     *
+     * @return The number of trees.
+     */
+    public int getTreeCount() {
+        return treeMap.size();
+    }
+
+    /**
+     * Gets the number of leaves on the resident trees.
+     *
+     * @return The number of leaves.
+     */
+    public int getLeafCount() {
+        int count = 0;
+        for (TreeData treeData : treeMap.values()) {
+            count += treeData.getLeaves().size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of fruits on the resident trees, eaten or not.
+     *
+     * @return The number of fruits.
+     */
+    public int getFruitCount() {
+        int count = 0;
+        for (TreeData treeData : treeMap.values()) {
+            count += treeData.getFruits().size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes the trees that are inside the specified range.
+     *
+     * @param minX The minimum x-coordinate of the range.
+     * @param maxX The maximum x-coordinate of the range.
+     * @return A HashMap of removed trees and their associated TreeData.
+     */
+    public HashMap<Tree, TreeData> removeInRange(int minX, int maxX) {
+        HashMap<Tree, TreeData> removedTrees = new HashMap<>();
+        treeMap.entrySet().removeIf(entry -> {
+            Tree tree = entry.getKey();
+            int x = (int) tree.getTopLeftCorner().x();
+            if (x >= minX && x <= maxX) {
+                removedTrees.put(tree, entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        return removedTrees;
     }
 
     /**
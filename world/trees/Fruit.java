@@ -20,34 +20,97 @@ public class Fruit extends Block {
     public static final String FRUIT_TAG = "fruit";
 
     private static final int CYCLE_OF_FRUIT = 30;
-    private final Vector2 initialPosition;
+    private Vector2 initialPosition;
     private final Renderable renderable;
+    private final int treeX;
+    private final int cell;
+    private FruitListener fruitListener;
+    private boolean hidden;
 
     /**
      * Constructs a Fruit instance.
      *
      * @param topLeftCorner The position of the top-left corner of the fruit.
+     * @param treeX The absolute x-coordinate of the tree the fruit grows on.
+     * @param cell The crown cell of the fruit, row after row.
      */
-    public Fruit(Vector2 topLeftCorner) {
+    public Fruit(Vector2 topLeftCorner, int treeX, int cell) {
         super(topLeftCorner, new OvalRenderable(Color.RED));
         this.initialPosition = topLeftCorner;
+        this.treeX = treeX;
+        this.cell = cell;
         this.renderable = this.renderer().getRenderable();
         physics().preventIntersectionsFromDirection(null);
         physics().setMass(1);
     }
 
+    /**
+     * Sets the listener that is notified when the fruit is eaten and grows back.
+     *
+     * @param listener Listener to handle the fruit's changes.
+     */
+    public void setFruitListener(FruitListener listener) {
+        this.fruitListener = listener;
+    }
+
     /**
      * Restarts the fruit by hiding it temporarily and then resetting its position and appearance.
      */
     public void restart() {
+        if (fruitListener != null) {
+            fruitListener.onFruitEaten(this);
+        }
+        hideUntilRegrown();
+    }
+
+    /**
+     * Hides the fruit as eaten, without notifying the listener, and lets it grow back after
+     * a full cycle. Used for fruit that was already eaten before it was created.
+     */
+    public void hideUntilRegrown() {
+        hidden = true;
         this.renderer().setRenderable(null);
         this.transform().setTopLeftCorner(Vector2.ZERO);
         new ScheduledTask(this, CYCLE_OF_FRUIT, false, () -> {
+            hidden = false;
             this.renderer().setRenderable(renderable);
             this.transform().setTopLeftCorner(initialPosition);
+            if (fruitListener != null) {
+                fruitListener.onFruitRegrown(this);
+            }
         });
     }
 
+    /**
+     * Moves the fruit horizontally, along with the position it grows back at.
+     *
+     * @param offset The horizontal distance to move the fruit by, in pixels.
+     */
+    public void moveBy(float offset) {
+        initialPosition = initialPosition.add(new Vector2(offset, 0));
+        if (!hidden) {
+            setTopLeftCorner(initialPosition);
+        }
+    }
+
+    /**
+     * Gets the absolute x-coordinate of the tree the fruit grows on.
+     *
+     * @return The x-coordinate of the fruit's tree.
+     */
+    public int getTreeX() {
+        return treeX;
+    }
+
+    /**
+     * Gets the crown cell of the fruit.
+     *
+     * @return The index of the fruit's crown cell, row after row.
+     */
+    public int getCell() {
+        return cell;
+    }
+
     /**
      * Gets the initial position of the fruit.
      *
@@ -0,0 +1,22 @@
+package pepse.world.trees;
+
+/**
+ * An interface for listening to fruits being eaten and growing back.
+ * Implementing classes can use this to keep track of the world's eaten fruit.
+ */
+public interface FruitListener {
+
+    /**
+     * Called when a fruit is eaten.
+     *
+     * @param fruit The eaten fruit.
+     */
+    void onFruitEaten(Fruit fruit);
+
+    /**
+     * Called when an eaten fruit grows back.
+     *
+     * @param fruit The fruit that grew back.
+     */
+    void onFruitRegrown(Fruit fruit);
+}
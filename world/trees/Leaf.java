@@ -1,5 +1,6 @@
 package pepse.world.trees;
 
+import danogl.components.Component;
 import danogl.components.ScheduledTask;
 import danogl.components.Transition;
 import danogl.gui.rendering.RectangleRenderable;
@@ -7,10 +8,15 @@ import danogl.util.Vector2;
 import pepse.world.Block;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a leaf in the game world.
  * Leaves can oscillate and change their dimensions over time to simulate natural movement.
+ * Only a fraction of the leaves may be animated, to save frame time; every leaf has a fixed
+ * rank, so lowering the fraction only ever stops leaves, and raising it restarts them.
  */
 public class Leaf extends Block {
 
@@ -26,24 +32,65 @@ public class Leaf extends Block {
     private static final float SCHEDULE_TRANSITION_TIME = 2f;
     private static final float LEAF_TRANSITION_TIME = 2f;
     private static final float MAX_WIDTH_LEAF = 1.1f;
+    private static final float FULL_ANIMATION_DENSITY = 1f;
+
+    private final Vector2 baseDimensions;
+    private final float animationRank;
+    private final List<Component> animations = new ArrayList<>();
 
     /**
-     * Constructs a Leaf instance.
+     * Constructs an animated Leaf instance.
      *
      * @param topLeftCorner The position of the top-left corner of the leaf.
      */
     public Leaf(Vector2 topLeftCorner) {
+        this(topLeftCorner, FULL_ANIMATION_DENSITY);
+    }
+
+    /**
+     * Constructs a Leaf instance that is animated if its rank falls within the fraction of
+     * leaves that are animated.
+     *
+     * @param topLeftCorner The position of the top-left corner of the leaf.
+     * @param animationDensity The fraction of leaves that are animated, between 0 and 1.
+     */
+    public Leaf(Vector2 topLeftCorner, float animationDensity) {
         super(topLeftCorner, new RectangleRenderable(BASE_LEAF_COLOR));
         physics().preventIntersectionsFromDirection(null);
         physics().setMass(1);
-        scheduleTransition();
-        new Transition<>(
-                this, this::setDimensions,
-                new Vector2(this.getDimensions().x() * MAX_WIDTH_LEAF, this.getDimensions().y()),
-                new Vector2(this.getDimensions().x(), this.getDimensions().y()),
-                Transition.LINEAR_INTERPOLATOR_VECTOR, LEAF_TRANSITION_TIME,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null
-        );
+        baseDimensions = getDimensions();
+        animationRank = ThreadLocalRandom.current().nextFloat();
+        setAnimationDensity(animationDensity);
+    }
+
+    /**
+     * Starts or stops the leaf's animations, depending on whether its rank falls within the
+     * fraction of leaves that are animated. A stopped leaf is drawn at rest.
+     *
+     * @param animationDensity The fraction of leaves that are animated, between 0 and 1.
+     */
+    public void setAnimationDensity(float animationDensity) {
+        boolean animated = animationRank < animationDensity;
+        if (animated == !animations.isEmpty()) {
+            return;
+        }
+        if (animated) {
+            scheduleTransition();
+            animations.add(new Transition<>(
+                    this, this::setDimensions,
+                    new Vector2(baseDimensions.x() * MAX_WIDTH_LEAF, baseDimensions.y()),
+                    new Vector2(baseDimensions.x(), baseDimensions.y()),
+                    Transition.LINEAR_INTERPOLATOR_VECTOR, LEAF_TRANSITION_TIME,
+                    Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null
+            ));
+        } else {
+            for (Component animation : animations) {
+                removeComponent(animation);
+            }
+            animations.clear();
+            renderer().setRenderableAngle(SCHEDULE_INITIAL_VALUE);
+            setDimensions(baseDimensions);
+        }
     }
 
     /**
@@ -51,22 +98,24 @@ public class Leaf extends Block {
      */
     private void scheduleTransition() {
         float waitTime = generateRandomWaitTime();
-        new ScheduledTask(this, waitTime, false, () -> new Transition<>(
+        animations.add(new ScheduledTask(this, waitTime, false, () -> animations.add(new Transition<>(
                 this,
                 this.renderer()::setRenderableAngle,
                 SCHEDULE_INITIAL_VALUE, SCHEDULE_FINAL_VALUE,
                 Transition.LINEAR_INTERPOLATOR_FLOAT, SCHEDULE_TRANSITION_TIME,
                 Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null
-        ));
+        ))));
     }
 
     /**
      * Generates a random wait time for scheduling the leaf's oscillation.
      *
+     * The generator is per thread, so leaves created on several threads do not contend for it.
+     *
      * @return A random wait time between 0 and MAX_INT_TO_RANDOM.
      */
     private float generateRandomWaitTime() {
-        return (float) (Math.random() * MAX_INT_TO_RANDOM);
+        return ThreadLocalRandom.current().nextFloat() * MAX_INT_TO_RANDOM;
     }
 
 }
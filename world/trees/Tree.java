@@ -4,7 +4,6 @@ import danogl.GameObject;
 import danogl.components.GameObjectPhysics;
 import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
-import pepse.PepseGameManager;
 import pepse.world.Block;
 
 import java.awt.*;
@@ -27,9 +26,8 @@ public class Tree extends GameObject {
     public static final String Tree_TAG = "tree";
 
     private static final Color BASE_TREE_COLOR = new Color(100, 50, 20);
-    private static final int TREE_HEIGHT_VARIATION = 151;
-    private static final int TREE_HEIGHT_MIN = 100;
-    private static Random random;
+    static final int TREE_HEIGHT_VARIATION = 151;
+    static final int TREE_HEIGHT_MIN = 100;
 
     /**
      * Constructs a Tree instance.
@@ -37,31 +35,31 @@ public class Tree extends GameObject {
      * @param topLeftCorner The position of the top-left corner of the tree.
      */
     public Tree(Vector2 topLeftCorner) {
-        super(topLeftCorner, new Vector2(WIDTH_TREE, calculateTreeHeight(topLeftCorner.x())),
-                new RectangleRenderable(BASE_TREE_COLOR));
-        physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
-        random = new Random(PepseGameManager.SEED);
-        setTag(Tree_TAG);
+        this(topLeftCorner, calculateTreeHeight(topLeftCorner.x()));
     }
 
     /**
-     * Initializes the random generator with a specific seed.
+     * Constructs a Tree instance with a known height, such as one read from a cached layout.
      *
-     * @param seed The seed for the random generator.
+     * @param topLeftCorner The position of the top-left corner of the tree.
+     * @param height The height of the tree.
      */
-    public static void initializeRandom(long seed) {
-        random = new Random(seed);
+    public Tree(Vector2 topLeftCorner, int height) {
+        super(topLeftCorner, new Vector2(WIDTH_TREE, height),
+                new RectangleRenderable(BASE_TREE_COLOR));
+        physics().preventIntersectionsFromDirection(Vector2.ZERO);
+        physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
+        setTag(Tree_TAG);
     }
 
     /**
      * Calculates the height of the tree based on its x-position.
+     * The generator is local to the call, so trees can be generated on several threads at once.
      *
      * @param xPosition The x-coordinate of the tree.
      * @return The height of the tree.
      */
     public static int calculateTreeHeight(float xPosition) {
-        random.setSeed((long) xPosition);
-        return random.nextInt(TREE_HEIGHT_VARIATION) + TREE_HEIGHT_MIN;
+        return new Random((long) xPosition).nextInt(TREE_HEIGHT_VARIATION) + TREE_HEIGHT_MIN;
     }
 }
@@ -0,0 +1,115 @@
+package pepse.world.trees;
+
+/**
+ * The generated shape of a single tree: where it stands, how tall its trunk is, and which
+ * cells of its crown hold a leaf or a fruit. It holds no game objects, so it can be cached
+ * and the tree rebuilt from it.
+ */
+public class TreeLayout {
+
+    /**
+     * The number of rows and columns of cells in a tree's crown.
+     */
+    public static final int CROWN_SIZE = 5;
+
+    private final int x;
+    private final float groundHeight;
+    private final int height;
+    private final int leafMask;
+    private final int fruitMask;
+
+    /**
+     * Constructs a TreeLayout instance.
+     *
+     * @param x The x-coordinate of the tree.
+     * @param groundHeight The ground height at the tree's x-coordinate.
+     * @param height The height of the trunk.
+     * @param leafMask A bit per crown cell, row after row, set where the cell holds a leaf.
+     * @param fruitMask A bit per crown cell, row after row, set where the cell holds a fruit.
+     */
+    public TreeLayout(int x, float groundHeight, int height, int leafMask, int fruitMask) {
+        this.x = x;
+        this.groundHeight = groundHeight;
+        this.height = height;
+        this.leafMask = leafMask;
+        this.fruitMask = fruitMask;
+    }
+
+    /**
+     * Gets the x-coordinate of the tree.
+     *
+     * @return The x-coordinate of the tree.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the ground height at the tree's x-coordinate.
+     *
+     * @return The y-coordinate of the ground under the tree.
+     */
+    public float getGroundHeight() {
+        return groundHeight;
+    }
+
+    /**
+     * Gets the height of the trunk.
+     *
+     * @return The trunk height, in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the cells of the crown that hold a leaf.
+     *
+     * @return A bit per crown cell, row after row.
+     */
+    public int getLeafMask() {
+        return leafMask;
+    }
+
+    /**
+     * Gets the cells of the crown that hold a fruit.
+     *
+     * @return A bit per crown cell, row after row.
+     */
+    public int getFruitMask() {
+        return fruitMask;
+    }
+
+    /**
+     * Checks whether a crown cell holds a leaf.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return True if the cell holds a leaf, false otherwise.
+     */
+    public boolean hasLeaf(int row, int column) {
+        return (leafMask & bit(row, column)) != 0;
+    }
+
+    /**
+     * Checks whether a crown cell holds a fruit.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return True if the cell holds a fruit, false otherwise.
+     */
+    public boolean hasFruit(int row, int column) {
+        return (fruitMask & bit(row, column)) != 0;
+    }
+
+    /**
+     * Gets the mask bit of a crown cell.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return The bit of the cell.
+     */
+    public static int bit(int row, int column) {
+        return 1 << (row * CROWN_SIZE + column);
+    }
+}